@@ -0,0 +1,42 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Looks up a {@link BatchingStrategy} by its configuration name.
+ */
+public final class BatchingStrategies {
+
+    public static final String NEAREST_NEIGHBOR = "nearest-neighbor";
+    public static final String BISECTION = "bisection";
+    public static final String HILBERT = "hilbert";
+
+    private BatchingStrategies() {
+    }
+
+    public static BatchingStrategy forName(String name) {
+        if (name == null || name.isBlank() || BISECTION.equalsIgnoreCase(name)) {
+            return RecursiveBisectionBatching.INSTANCE;
+        }
+        if (NEAREST_NEIGHBOR.equalsIgnoreCase(name)) {
+            return NearestNeighborBatching.INSTANCE;
+        }
+        if (HILBERT.equalsIgnoreCase(name)) {
+            return HilbertCurveBatching.INSTANCE;
+        }
+        throw new IllegalArgumentException("Unknown batching strategy: " + name);
+    }
+
+    // Consecutive chunks of at most maxBatchSize, for strategies that order first and cut afterwards
+    static List<List<Customer>> chunk(List<Customer> sorted, int maxBatchSize) {
+        List<List<Customer>> batches = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i += maxBatchSize) {
+            int endIndex = Math.min(i + maxBatchSize, sorted.size());
+            batches.add(new ArrayList<>(sorted.subList(i, endIndex)));
+        }
+        return batches;
+    }
+}
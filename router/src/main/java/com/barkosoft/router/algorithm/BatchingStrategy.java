@@ -0,0 +1,15 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.List;
+
+/**
+ * Splits a job's customers into OSRM-sized batches. Batches come back in
+ * visiting order, and the last customer of each batch is where the next batch
+ * starts from.
+ */
+public interface BatchingStrategy {
+
+    List<List<Customer>> createBatches(double startLat, double startLng, List<Customer> customers, int maxBatchSize);
+}
@@ -0,0 +1,103 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sparse alternative to {@link DistanceMatrix} for routes too large for N×N
+ * costs: the k nearest neighbours of every node, closest first, in flat
+ * primitive arrays. Node 0 is the start and node i the i-th customer, as in
+ * DistanceMatrix. Costs of pairs outside the lists are computed on demand
+ * from the coordinates, so memory grows linearly with the number of stops.
+ */
+public final class CandidateGraph {
+
+    private final int size;
+    private final int k;
+    private final GeoPoints points;
+
+    // neighbors[i * k + r] is the r-th nearest node to i, -1 past the end of a short list
+    private final int[] neighbors;
+    private final float[] costs;
+
+    private CandidateGraph(int k, GeoPoints points) {
+        this.size = points.size();
+        this.k = k;
+        this.points = points;
+        this.neighbors = new int[size * k];
+        this.costs = new float[size * k];
+    }
+
+    /**
+     * Builds the graph from straight-line distances with a k-d tree, in
+     * O(n log n) time.
+     */
+    public static CandidateGraph haversine(double startLat, double startLng, List<Customer> customers, int k) {
+        int size = customers.size() + 1;
+        int neighbours = Math.max(1, Math.min(k, size - 1));
+        List<Customer> nodes = new ArrayList<>(size);
+        Customer start = new Customer();
+        start.setLatitude(startLat);
+        start.setLongitude(startLng);
+        nodes.add(start);
+        nodes.addAll(customers);
+
+        CandidateGraph graph = new CandidateGraph(neighbours, GeoPoints.of(nodes));
+        SpatialIndex index = new SpatialIndex(graph.points);
+        int[] nearest = new int[neighbours];
+        for (int i = 0; i < size; i++) {
+            int found = index.nearestTo(i, neighbours, nearest);
+            for (int r = 0; r < neighbours; r++) {
+                int slot = i * neighbours + r;
+                graph.neighbors[slot] = r < found ? nearest[r] : -1;
+                graph.costs[slot] = r < found ? (float) graph.cost(i, nearest[r]) : Float.MAX_VALUE;
+            }
+        }
+        return graph;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Length of the neighbour lists.
+     */
+    public int k() {
+        return k;
+    }
+
+    public int neighbor(int node, int rank) {
+        return neighbors[node * k + rank];
+    }
+
+    public float neighborCost(int node, int rank) {
+        return costs[node * k + rank];
+    }
+
+    /**
+     * Straight-line cost in kilometres between any two nodes.
+     */
+    public double cost(int from, int to) {
+        return points.haversineKm(from, to);
+    }
+
+    GeoPoints points() {
+        return points;
+    }
+
+    /**
+     * Cost of visiting {@code order} in sequence, starting from node 0.
+     */
+    public double pathCost(int[] order) {
+        double total = 0.0;
+        int previous = 0;
+        for (int node : order) {
+            total += cost(previous, node);
+            previous = node;
+        }
+        return total;
+    }
+}
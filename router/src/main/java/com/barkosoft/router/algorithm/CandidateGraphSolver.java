@@ -0,0 +1,200 @@
+package com.barkosoft.router.algorithm;
+
+import java.time.Duration;
+
+/**
+ * Open-path local search over a {@link CandidateGraph}, for routes too large
+ * for {@link LocalSearchSolver}'s full matrix. The tour starts as a k-d tree
+ * nearest-neighbor walk. 2-opt and Or-opt moves are then only tried where
+ * they create an edge to one of a node's k nearest neighbours, so a pass
+ * costs O(n·k) instead of O(n²).
+ */
+public final class CandidateGraphSolver {
+
+    private static final double EPSILON = 1e-9;
+
+    private final CandidateGraph graph;
+    private final long deadline;
+    private final int[] tour;
+    private final int[] position;
+
+    private CandidateGraphSolver(CandidateGraph graph, long deadline) {
+        this.graph = graph;
+        this.deadline = deadline;
+        this.tour = new int[graph.size()];
+        this.position = new int[graph.size()];
+    }
+
+    /**
+     * Returns the nodes 1..n-1 in visiting order.
+     */
+    public static int[] solve(CandidateGraph graph, Duration budget) {
+        CandidateGraphSolver solver = new CandidateGraphSolver(graph, System.nanoTime() + budget.toNanos());
+        solver.nearestNeighbor();
+        boolean improved = true;
+        while (improved && !solver.expired()) {
+            improved = solver.twoOpt();
+            improved |= solver.orOpt();
+        }
+
+        int[] order = new int[solver.tour.length - 1];
+        System.arraycopy(solver.tour, 1, order, 0, order.length);
+        return order;
+    }
+
+    private void nearestNeighbor() {
+        int n = graph.size();
+        SpatialIndex index = new SpatialIndex(graph.points());
+        index.remove(0);
+        int current = 0;
+        for (int k = 1; k < n; k++) {
+            current = index.nearestTo(current);
+            index.remove(current);
+            tour[k] = current;
+        }
+        for (int k = 0; k < n; k++) {
+            position[tour[k]] = k;
+        }
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    private double cost(int from, int to) {
+        return graph.cost(from, to);
+    }
+
+    /**
+     * For each tour edge (a, b), tries to connect a to a closer candidate c by
+     * reversing the stretch between them.
+     */
+    private boolean twoOpt() {
+        int n = tour.length;
+        boolean improved = false;
+        for (int i = 0; i < n - 1; i++) {
+            if ((i & 255) == 0 && expired()) {
+                return improved;
+            }
+            int a = tour[i];
+            int b = tour[i + 1];
+            double ab = cost(a, b);
+            for (int r = 0; r < graph.k(); r++) {
+                int c = graph.neighbor(a, r);
+                if (c < 0 || graph.neighborCost(a, r) >= ab) {
+                    break;
+                }
+                int j = position[c];
+                double delta;
+                if (j > i + 1) {
+                    // a b ... c d  ->  a c ... b d
+                    double tail = j + 1 < n ? cost(b, tour[j + 1]) - cost(c, tour[j + 1]) : 0.0;
+                    delta = graph.neighborCost(a, r) - ab + tail;
+                    if (delta < -EPSILON) {
+                        reverse(i + 1, j);
+                        improved = true;
+                        break;
+                    }
+                } else if (j < i - 1) {
+                    // c e ... a b  ->  c a ... e b
+                    int e = tour[j + 1];
+                    delta = graph.neighborCost(a, r) + cost(e, b) - cost(c, e) - ab;
+                    if (delta < -EPSILON) {
+                        reverse(j + 1, i);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Moves a run of 1 to 3 stops next to a candidate neighbour of its first
+     * stop, either right after it or reversed right before it.
+     */
+    private boolean orOpt() {
+        int n = tour.length;
+        boolean improved = false;
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 1; i + length <= n; i++) {
+                if ((i & 255) == 0 && expired()) {
+                    return improved;
+                }
+                int first = tour[i];
+                int last = tour[i + length - 1];
+                int before = tour[i - 1];
+                int after = i + length < n ? tour[i + length] : -1;
+                double removed = cost(before, first)
+                        + (after >= 0 ? cost(last, after) - cost(before, after) : 0.0);
+
+                for (int r = 0; r < graph.k(); r++) {
+                    int c = graph.neighbor(first, r);
+                    if (c < 0 || graph.neighborCost(first, r) >= removed) {
+                        break;
+                    }
+                    int p = position[c];
+                    if (p >= i - 1 && p < i + length) {
+                        continue;
+                    }
+                    // c first..last next
+                    int next = p + 1 < n ? tour[p + 1] : -1;
+                    double added = graph.neighborCost(first, r)
+                            + (next >= 0 ? cost(last, next) - cost(c, next) : 0.0);
+                    if (added - removed < -EPSILON) {
+                        move(i, length, p, false);
+                        improved = true;
+                        break;
+                    }
+                    // previous last..first c
+                    if (p > 0 && p != i + length) {
+                        int previous = tour[p - 1];
+                        double addedBefore = cost(previous, last) + graph.neighborCost(first, r) - cost(previous, c);
+                        if (addedBefore - removed < -EPSILON) {
+                            move(i, length, p - 1, true);
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private void reverse(int i, int j) {
+        for (int from = i, to = j; from < to; from++, to--) {
+            int t = tour[from];
+            tour[from] = tour[to];
+            tour[to] = t;
+        }
+        for (int k = i; k <= j; k++) {
+            position[tour[k]] = k;
+        }
+    }
+
+    // Moves tour[i, i + length) to just after tour[p], optionally reversed
+    private void move(int i, int length, int p, boolean reversed) {
+        int[] run = new int[length];
+        for (int k = 0; k < length; k++) {
+            run[k] = tour[reversed ? i + length - 1 - k : i + k];
+        }
+        int from;
+        int to;
+        if (p < i) {
+            System.arraycopy(tour, p + 1, tour, p + 1 + length, i - p - 1);
+            System.arraycopy(run, 0, tour, p + 1, length);
+            from = p + 1;
+            to = i + length - 1;
+        } else {
+            System.arraycopy(tour, i + length, tour, i, p - i - length + 1);
+            System.arraycopy(run, 0, tour, p - length + 1, length);
+            from = i;
+            to = p;
+        }
+        for (int k = from; k <= to; k++) {
+            position[tour[k]] = k;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.barkosoft.router.algorithm;
+
+/**
+ * One-to-many distance routines over primitive unit-sphere coordinates.
+ * Results for {@code [from, to)} are written to {@code out[0 .. to - from)}.
+ */
+public interface DistanceKernel {
+
+    void chordSquared(double[] xs, double[] ys, double[] zs, int from, int to,
+                      double qx, double qy, double qz, double[] out);
+}
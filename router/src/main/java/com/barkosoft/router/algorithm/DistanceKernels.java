@@ -0,0 +1,41 @@
+package com.barkosoft.router.algorithm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class DistanceKernels {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceKernels.class);
+
+    private static final DistanceKernel PREFERRED = load();
+
+    private DistanceKernels() {
+    }
+
+    /**
+     * The Vector API kernel when the JVM runs with
+     * {@code --add-modules jdk.incubator.vector}, the scalar kernel otherwise.
+     */
+    public static DistanceKernel preferred() {
+        return PREFERRED;
+    }
+
+    public static DistanceKernel scalar() {
+        return ScalarDistanceKernel.INSTANCE;
+    }
+
+    private static DistanceKernel load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            logger.info("jdk.incubator.vector not available, using scalar distance kernel");
+            return ScalarDistanceKernel.INSTANCE;
+        }
+        try {
+            DistanceKernel kernel = new VectorDistanceKernel();
+            logger.info("Using Vector API distance kernel");
+            return kernel;
+        } catch (LinkageError e) {
+            logger.warn("Vector API distance kernel unavailable, using scalar kernel: {}", e.getMessage());
+            return ScalarDistanceKernel.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.List;
+
+/**
+ * Travel costs between route nodes, stored row-major in one float array.
+ * Node 0 is the start and node i the i-th customer. Costs need not be
+ * symmetric; road matrices usually are not.
+ */
+public final class DistanceMatrix {
+
+    private final int size;
+    private final float[] costs;
+    private final boolean symmetric;
+
+    public DistanceMatrix(int size, float[] costs, boolean symmetric) {
+        if (costs.length != size * size) {
+            throw new IllegalArgumentException("Expected " + size * size + " costs, got " + costs.length);
+        }
+        this.size = size;
+        this.costs = costs;
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Straight-line matrix in kilometres, for the start followed by the customers.
+     */
+    public static DistanceMatrix haversine(double startLat, double startLng, List<Customer> customers) {
+        int size = customers.size() + 1;
+        double[] lats = new double[size];
+        double[] lngs = new double[size];
+        lats[0] = startLat;
+        lngs[0] = startLng;
+        for (int i = 1; i < size; i++) {
+            lats[i] = customers.get(i - 1).getLatitude();
+            lngs[i] = customers.get(i - 1).getLongitude();
+        }
+
+        float[] costs = new float[size * size];
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                float d = (float) GeoPoints.haversineKm(lats[i], lngs[i], lats[j], lngs[j]);
+                costs[i * size + j] = d;
+                costs[j * size + i] = d;
+            }
+        }
+        return new DistanceMatrix(size, costs, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float get(int from, int to) {
+        return costs[from * size + to];
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * Cost of visiting {@code order} in sequence, starting from node 0.
+     */
+    public double pathCost(int[] order) {
+        double total = 0.0;
+        int previous = 0;
+        for (int node : order) {
+            total += get(previous, node);
+            previous = node;
+        }
+        return total;
+    }
+}
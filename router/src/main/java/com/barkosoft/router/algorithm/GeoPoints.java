@@ -0,0 +1,125 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.List;
+
+/**
+ * Customer coordinates loaded once into primitive arrays, with the
+ * trigonometry each distance needs computed up front. Exact Haversine is
+ * available for reporting; the equirectangular variants avoid trig entirely
+ * and are meant for ranking candidates over city-sized areas.
+ */
+public final class GeoPoints {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    private final int size;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] latRad;
+    private final double[] lngRad;
+    private final double[] cosLat;
+
+    // Unit-sphere positions, used by SpatialIndex
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    private GeoPoints(int size) {
+        this.size = size;
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.latRad = new double[size];
+        this.lngRad = new double[size];
+        this.cosLat = new double[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+    }
+
+    public static GeoPoints of(List<Customer> customers) {
+        GeoPoints points = new GeoPoints(customers.size());
+        for (int i = 0; i < points.size; i++) {
+            Customer customer = customers.get(i);
+            points.set(i, customer.getLatitude(), customer.getLongitude());
+        }
+        return points;
+    }
+
+    private void set(int i, double lat, double lng) {
+        latitudes[i] = lat;
+        longitudes[i] = lng;
+        latRad[i] = Math.toRadians(lat);
+        lngRad[i] = Math.toRadians(lng);
+        cosLat[i] = Math.cos(latRad[i]);
+        xs[i] = cosLat[i] * Math.cos(lngRad[i]);
+        ys[i] = cosLat[i] * Math.sin(lngRad[i]);
+        zs[i] = Math.sin(latRad[i]);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double latitude(int i) {
+        return latitudes[i];
+    }
+
+    public double longitude(int i) {
+        return longitudes[i];
+    }
+
+    double[] xs() {
+        return xs;
+    }
+
+    double[] ys() {
+        return ys;
+    }
+
+    double[] zs() {
+        return zs;
+    }
+
+    public double haversineKm(int i, int j) {
+        return haversineRad(latRad[i], lngRad[i], cosLat[i], latRad[j], lngRad[j], cosLat[j]);
+    }
+
+    public double haversineKm(int i, double lat, double lng) {
+        double lat2 = Math.toRadians(lat);
+        return haversineRad(latRad[i], lngRad[i], cosLat[i], lat2, Math.toRadians(lng), Math.cos(lat2));
+    }
+
+    /**
+     * Equirectangular distance from point {@code i} to the given coordinates;
+     * only the other point's cosine is computed per call.
+     */
+    public double equirectangularKm(int i, double lat, double lng) {
+        double lat2 = Math.toRadians(lat);
+        double x = (Math.toRadians(lng) - lngRad[i]) * 0.5 * (cosLat[i] + Math.cos(lat2));
+        double y = lat2 - latRad[i];
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_KM;
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+        return haversineRad(lat1Rad, Math.toRadians(lng1), Math.cos(lat1Rad),
+                lat2Rad, Math.toRadians(lng2), Math.cos(lat2Rad));
+    }
+
+    public static double equirectangularKm(double lat1, double lng1, double lat2, double lng2) {
+        double x = Math.toRadians(lng2 - lng1) * Math.cos(Math.toRadians((lat1 + lat2) * 0.5));
+        double y = Math.toRadians(lat2 - lat1);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_KM;
+    }
+
+    private static double haversineRad(double lat1, double lng1, double cosLat1,
+                                       double lat2, double lng2, double cosLat2) {
+        double sinDLat = Math.sin((lat2 - lat1) * 0.5);
+        double sinDLng = Math.sin((lng2 - lng1) * 0.5);
+        double a = sinDLat * sinDLat + cosLat1 * cosLat2 * sinDLng * sinDLng;
+        return 2 * EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+}
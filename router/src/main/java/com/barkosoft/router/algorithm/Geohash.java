@@ -0,0 +1,76 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.List;
+
+/**
+ * Standard base-32 geohash. Points that share a prefix lie in the same cell;
+ * precision 4 is roughly 39 x 20 km, about one metro area.
+ */
+public final class Geohash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private Geohash() {
+    }
+
+    public static String encode(double lat, double lng, int precision) {
+        double minLat = -90.0;
+        double maxLat = 90.0;
+        double minLng = -180.0;
+        double maxLng = 180.0;
+
+        StringBuilder hash = new StringBuilder(precision);
+        boolean evenBit = true;
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            if (evenBit) {
+                double mid = (minLng + maxLng) / 2;
+                if (lng >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLng = mid;
+                } else {
+                    ch <<= 1;
+                    maxLng = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (lat >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch <<= 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * Geohash of the mean position of the customers, or null if none has
+     * coordinates.
+     */
+    public static String ofCentroid(List<Customer> customers, int precision) {
+        double lat = 0.0;
+        double lng = 0.0;
+        int count = 0;
+        for (Customer customer : customers) {
+            if (customer.getLatitude() != null && customer.getLongitude() != null) {
+                lat += customer.getLatitude();
+                lng += customer.getLongitude();
+                count++;
+            }
+        }
+        return count > 0 ? encode(lat / count, lng / count, precision) : null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.barkosoft.router.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Exact open-path TSP by Held-Karp dynamic programming: the route starts at
+ * node 0 and may end anywhere. States are (set of visited stops, last stop),
+ * with the set as a bitmask, kept in flat primitive arrays. Time is
+ * O(2^n · n²), which is why it is limited to {@link #MAX_STOPS} stops.
+ */
+public final class HeldKarpSolver {
+
+    public static final int MAX_STOPS = 16;
+
+    private HeldKarpSolver() {
+    }
+
+    /**
+     * Returns the nodes 1..n-1 in the optimal visiting order.
+     */
+    public static int[] solve(DistanceMatrix matrix) {
+        int stops = matrix.size() - 1;
+        if (stops > MAX_STOPS) {
+            throw new IllegalArgumentException("Held-Karp is limited to " + MAX_STOPS + " stops, got " + stops);
+        }
+        if (stops <= 0) {
+            return new int[0];
+        }
+
+        int full = (1 << stops) - 1;
+        // cost[mask * stops + last]: cheapest path from the start over mask, ending at stop last
+        float[] cost = new float[(full + 1) * stops];
+        byte[] parent = new byte[(full + 1) * stops];
+        Arrays.fill(cost, Float.MAX_VALUE);
+        for (int last = 0; last < stops; last++) {
+            cost[(1 << last) * stops + last] = matrix.get(0, last + 1);
+            parent[(1 << last) * stops + last] = -1;
+        }
+
+        for (int mask = 1; mask <= full; mask++) {
+            for (int last = 0; last < stops; last++) {
+                float current = cost[mask * stops + last];
+                if ((mask & (1 << last)) == 0 || current == Float.MAX_VALUE) {
+                    continue;
+                }
+                int remaining = full & ~mask;
+                while (remaining != 0) {
+                    int next = Integer.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    int state = (mask | (1 << next)) * stops + next;
+                    float candidate = current + matrix.get(last + 1, next + 1);
+                    if (candidate < cost[state]) {
+                        cost[state] = candidate;
+                        parent[state] = (byte) last;
+                    }
+                }
+            }
+        }
+
+        int best = 0;
+        for (int last = 1; last < stops; last++) {
+            if (cost[full * stops + last] < cost[full * stops + best]) {
+                best = last;
+            }
+        }
+
+        // Walk the parents back from the cheapest end
+        int[] order = new int[stops];
+        int mask = full;
+        int last = best;
+        for (int k = stops - 1; k >= 0; k--) {
+            order[k] = last + 1;
+            int previous = parent[mask * stops + last];
+            mask &= ~(1 << last);
+            last = previous;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,99 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Orders customers along a Hilbert curve laid over their bounding box and cuts
+ * the result into chunks. One sort, O(n log n), so it stays in the milliseconds
+ * for very large jobs; the tour is somewhat longer than nearest-neighbor since
+ * the curve only approximates locality.
+ */
+public final class HilbertCurveBatching implements BatchingStrategy {
+
+    static final HilbertCurveBatching INSTANCE = new HilbertCurveBatching();
+
+    // Grid of 2^16 x 2^16 cells over the bounding box
+    private static final int ORDER = 16;
+    private static final int SIDE = 1 << ORDER;
+
+    private HilbertCurveBatching() {
+    }
+
+    @Override
+    public List<List<Customer>> createBatches(double startLat, double startLng, List<Customer> customers, int maxBatchSize) {
+        return BatchingStrategies.chunk(sortByHilbertIndex(startLat, startLng, customers), maxBatchSize);
+    }
+
+    /**
+     * Customers in Hilbert-curve order, walked from whichever end of the curve
+     * is closer to the start.
+     */
+    public static List<Customer> sortByHilbertIndex(double startLat, double startLng, List<Customer> customers) {
+        int n = customers.size();
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+
+        GeoPoints points = GeoPoints.of(customers);
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE;
+        double maxLng = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, points.latitude(i));
+            maxLat = Math.max(maxLat, points.latitude(i));
+            minLng = Math.min(minLng, points.longitude(i));
+            maxLng = Math.max(maxLng, points.longitude(i));
+        }
+        // Same scale on both axes, so the cells are square on the ground
+        double lngScale = Math.cos(Math.toRadians((minLat + maxLat) * 0.5));
+        double extent = Math.max(maxLat - minLat, (maxLng - minLng) * lngScale);
+        double cellsPerUnit = extent > 0 ? (SIDE - 1) / extent : 0.0;
+
+        // 32-bit curve index above a 31-bit list position, so keys stay positive
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int x = (int) ((points.longitude(i) - minLng) * lngScale * cellsPerUnit);
+            int y = (int) ((points.latitude(i) - minLat) * cellsPerUnit);
+            keys[i] = hilbertIndex(x, y) << 31 | i;
+        }
+        Arrays.sort(keys);
+
+        List<Customer> sorted = new ArrayList<>(n);
+        for (long key : keys) {
+            sorted.add(customers.get((int) (key & Integer.MAX_VALUE)));
+        }
+
+        int first = (int) (keys[0] & Integer.MAX_VALUE);
+        int last = (int) (keys[n - 1] & Integer.MAX_VALUE);
+        if (points.equirectangularKm(last, startLat, startLng) < points.equirectangularKm(first, startLat, startLng)) {
+            Collections.reverse(sorted);
+        }
+        return sorted;
+    }
+
+    static long hilbertIndex(int x, int y) {
+        long d = 0;
+        for (int s = SIDE >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotate the quadrant so the curve stays continuous
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = SIDE - 1 - x;
+                    y = SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+}
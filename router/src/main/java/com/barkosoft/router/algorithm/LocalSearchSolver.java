@@ -0,0 +1,169 @@
+package com.barkosoft.router.algorithm;
+
+import java.time.Duration;
+
+/**
+ * Open-path TSP solver over a {@link DistanceMatrix}: the route starts at node 0
+ * and may end anywhere. A nearest-neighbor tour is improved with 2-opt and
+ * Or-opt moves until no move helps or the time budget runs out, in which case
+ * the best route found so far is returned.
+ */
+public final class LocalSearchSolver {
+
+    private static final double EPSILON = 1e-6;
+
+    private final DistanceMatrix matrix;
+    private final long deadline;
+
+    private LocalSearchSolver(DistanceMatrix matrix, long deadline) {
+        this.matrix = matrix;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the nodes 1..n-1 in visiting order.
+     */
+    public static int[] solve(DistanceMatrix matrix, Duration budget) {
+        LocalSearchSolver solver = new LocalSearchSolver(matrix, System.nanoTime() + budget.toNanos());
+        int[] tour = solver.nearestNeighbor();
+        solver.improve(tour);
+
+        int[] order = new int[tour.length - 1];
+        System.arraycopy(tour, 1, order, 0, order.length);
+        return order;
+    }
+
+    /**
+     * Improves a tour in place until it is 2-opt and Or-opt optimal or
+     * {@link System#nanoTime()} passes {@code deadline}. tour[0] must be node 0.
+     */
+    static void improve(DistanceMatrix matrix, int[] tour, long deadline) {
+        new LocalSearchSolver(matrix, deadline).improve(tour);
+    }
+
+    // tour[0] is always the start node
+    private int[] nearestNeighbor() {
+        int n = matrix.size();
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int k = 1; k < n; k++) {
+            int current = tour[k - 1];
+            int best = -1;
+            float bestCost = Float.MAX_VALUE;
+            for (int j = 1; j < n; j++) {
+                if (!visited[j] && matrix.get(current, j) < bestCost) {
+                    best = j;
+                    bestCost = matrix.get(current, j);
+                }
+            }
+            tour[k] = best;
+            visited[best] = true;
+        }
+        return tour;
+    }
+
+    private void improve(int[] tour) {
+        boolean improved = true;
+        while (improved && !expired()) {
+            improved = twoOpt(tour);
+            improved |= orOpt(tour);
+        }
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    /**
+     * First-improvement 2-opt: reverses tour[i..j]. For asymmetric costs the
+     * change in the reversed stretch is accumulated as j grows.
+     */
+    private boolean twoOpt(int[] tour) {
+        int n = tour.length;
+        boolean improved = false;
+        for (int i = 1; i < n - 1; i++) {
+            if (expired()) {
+                return improved;
+            }
+            double reversal = 0.0;
+            for (int j = i + 1; j < n; j++) {
+                if (!matrix.isSymmetric()) {
+                    reversal += matrix.get(tour[j], tour[j - 1]) - matrix.get(tour[j - 1], tour[j]);
+                }
+                double delta = matrix.get(tour[i - 1], tour[j]) - matrix.get(tour[i - 1], tour[i]) + reversal;
+                if (j + 1 < n) {
+                    delta += matrix.get(tour[i], tour[j + 1]) - matrix.get(tour[j], tour[j + 1]);
+                }
+                if (delta < -EPSILON) {
+                    reverse(tour, i, j);
+                    improved = true;
+                    reversal = 0.0;
+                    // Costs inside the stretch changed, so restart the inner scan
+                    j = i;
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * Or-opt: moves a run of 1 to 3 nodes, kept in its direction, to another
+     * position in the tour.
+     */
+    private boolean orOpt(int[] tour) {
+        int n = tour.length;
+        boolean improved = false;
+        for (int length = 1; length <= 3; length++) {
+            for (int i = 1; i + length <= n; i++) {
+                if (expired()) {
+                    return improved;
+                }
+                int first = tour[i];
+                int last = tour[i + length - 1];
+                int before = tour[i - 1];
+                int after = i + length < n ? tour[i + length] : -1;
+
+                double removed = matrix.get(before, first)
+                        + (after >= 0 ? matrix.get(last, after) - matrix.get(before, after) : 0.0);
+
+                // Insert between tour[p] and tour[p + 1], outside the run
+                for (int p = 0; p < n; p++) {
+                    if (p >= i - 1 && p < i + length) {
+                        continue;
+                    }
+                    int next = p + 1 < n ? tour[p + 1] : -1;
+                    double added = matrix.get(tour[p], first)
+                            + (next >= 0 ? matrix.get(last, next) - matrix.get(tour[p], next) : 0.0);
+                    if (added - removed < -EPSILON) {
+                        move(tour, i, length, p);
+                        improved = true;
+                        break;
+                    }
+                }
+            }
+        }
+        return improved;
+    }
+
+    private static void reverse(int[] tour, int i, int j) {
+        for (; i < j; i++, j--) {
+            int t = tour[i];
+            tour[i] = tour[j];
+            tour[j] = t;
+        }
+    }
+
+    // Moves tour[i, i + length) to just after tour[p]
+    private static void move(int[] tour, int i, int length, int p) {
+        int[] run = new int[length];
+        System.arraycopy(tour, i, run, 0, length);
+        if (p < i) {
+            System.arraycopy(tour, p + 1, tour, p + 1 + length, i - p - 1);
+            System.arraycopy(run, 0, tour, p + 1, length);
+        } else {
+            System.arraycopy(tour, i + length, tour, i, p - i - length + 1);
+            System.arraycopy(run, 0, tour, p - length + 1, length);
+        }
+    }
+}
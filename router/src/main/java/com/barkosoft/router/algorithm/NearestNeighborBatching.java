@@ -0,0 +1,41 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Greedy nearest-neighbor tour from the start, cut into consecutive chunks of
+ * the batch size. Cheap, but a chunk stretches wherever the tour jumps.
+ */
+public final class NearestNeighborBatching implements BatchingStrategy {
+
+    static final NearestNeighborBatching INSTANCE = new NearestNeighborBatching();
+
+    private NearestNeighborBatching() {
+    }
+
+    @Override
+    public List<List<Customer>> createBatches(double startLat, double startLng, List<Customer> customers, int maxBatchSize) {
+        return BatchingStrategies.chunk(sortByNearestNeighbor(startLat, startLng, customers), maxBatchSize);
+    }
+
+    public static List<Customer> sortByNearestNeighbor(double startLat, double startLng, List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        SpatialIndex index = new SpatialIndex(GeoPoints.of(customers));
+        List<Customer> sorted = new ArrayList<>(customers.size());
+
+        // Greedy nearest neighbor algorithm
+        int current = index.nearest(startLat, startLng);
+        while (current >= 0) {
+            index.remove(current);
+            sorted.add(customers.get(current));
+            current = index.nearestTo(current);
+        }
+        return sorted;
+    }
+}
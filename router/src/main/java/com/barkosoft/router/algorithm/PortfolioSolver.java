@@ -0,0 +1,168 @@
+package com.barkosoft.router.algorithm;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Multi-start variant of {@link LocalSearchSolver} for one request spread over
+ * several cores. Each worker, the calling thread plus tasks on a fork-join
+ * pool, repeatedly builds a tour, either a randomized nearest-neighbor
+ * construction or a double-bridge kick of the best tour found so far, improves
+ * it with local search and offers it to the shared incumbent. Workers stop at the deadline or after
+ * {@link #STALL_ROUNDS} rounds in a row without improving the incumbent.
+ */
+public final class PortfolioSolver {
+
+    static final int STALL_ROUNDS = 20;
+
+    // Randomized construction picks among this many nearest unvisited nodes
+    private static final int CANDIDATES = 3;
+
+    private final DistanceMatrix matrix;
+    private final long deadline;
+
+    private int[] bestTour;
+    private double bestCost = Double.MAX_VALUE;
+
+    private PortfolioSolver(DistanceMatrix matrix, long deadline) {
+        this.matrix = matrix;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Returns the nodes 1..n-1 in visiting order, using the calling thread and
+     * up to {@code workers - 1} tasks on {@code pool}. With one worker this is
+     * {@link LocalSearchSolver}.
+     */
+    public static int[] solve(DistanceMatrix matrix, Duration budget, int workers, ForkJoinPool pool) {
+        if (workers <= 1 || matrix.size() < 5) {
+            return LocalSearchSolver.solve(matrix, budget);
+        }
+
+        PortfolioSolver portfolio = new PortfolioSolver(matrix, System.nanoTime() + budget.toNanos());
+        // The plain greedy tour is the incumbent before any task runs, so a saturated
+        // pool that starts the workers after the deadline still leaves an answer
+        portfolio.offer(portfolio.construct(new SplittableRandom(0), 1));
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(workers - 1);
+        for (int w = 1; w < workers; w++) {
+            int worker = w;
+            tasks.add(pool.submit(() -> portfolio.search(worker)));
+        }
+        // Worker 0 runs on the calling thread, so the search makes progress however busy the pool is
+        portfolio.search(0);
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+
+        int[] tour = portfolio.best();
+        if (tour == null) {
+            return LocalSearchSolver.solve(matrix, budget);
+        }
+        int[] order = new int[tour.length - 1];
+        System.arraycopy(tour, 1, order, 0, order.length);
+        return order;
+    }
+
+    private void search(int worker) {
+        SplittableRandom random = new SplittableRandom(0x9E3779B97F4A7C15L * (worker + 1));
+        int stalled = 0;
+        for (int round = 0; stalled < STALL_ROUNDS && !expired(); round++) {
+            int[] tour;
+            if (round == 0) {
+                // Worker 0 starts from the plain greedy tour, so the portfolio never loses to one thread
+                tour = construct(random, worker == 0 ? 1 : CANDIDATES);
+            } else {
+                int[] best = best();
+                tour = round % 2 == 1 && best != null ? doubleBridge(best, random) : construct(random, CANDIDATES);
+            }
+            LocalSearchSolver.improve(matrix, tour, deadline);
+            stalled = offer(tour) ? 0 : stalled + 1;
+        }
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    private synchronized boolean offer(int[] tour) {
+        double cost = cost(tour);
+        if (cost < bestCost - 1e-6) {
+            bestCost = cost;
+            bestTour = tour.clone();
+            return true;
+        }
+        return false;
+    }
+
+    private synchronized int[] best() {
+        return bestTour != null ? bestTour.clone() : null;
+    }
+
+    private double cost(int[] tour) {
+        double total = 0.0;
+        for (int k = 1; k < tour.length; k++) {
+            total += matrix.get(tour[k - 1], tour[k]);
+        }
+        return total;
+    }
+
+    // Nearest-neighbor tour that picks randomly among the closest unvisited nodes
+    private int[] construct(SplittableRandom random, int candidates) {
+        int n = matrix.size();
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        int[] nearest = new int[candidates];
+        for (int k = 1; k < n; k++) {
+            int current = tour[k - 1];
+            int found = 0;
+            for (int j = 1; j < n; j++) {
+                if (visited[j]) {
+                    continue;
+                }
+                // Insertion into the small sorted candidate list
+                int slot = Math.min(found, candidates - 1);
+                if (found == candidates && matrix.get(current, j) >= matrix.get(current, nearest[slot])) {
+                    continue;
+                }
+                while (slot > 0 && matrix.get(current, j) < matrix.get(current, nearest[slot - 1])) {
+                    nearest[slot] = nearest[slot - 1];
+                    slot--;
+                }
+                nearest[slot] = j;
+                found = Math.min(found + 1, candidates);
+            }
+            int next = nearest[random.nextInt(found)];
+            tour[k] = next;
+            visited[next] = true;
+        }
+        return tour;
+    }
+
+    // A C B D from A B C D, with A holding the start; 2-opt and Or-opt cannot undo it in one move
+    private static int[] doubleBridge(int[] tour, SplittableRandom random) {
+        int n = tour.length;
+        int a = 1 + random.nextInt(n - 3);
+        int b = a + 1 + random.nextInt(n - a - 2);
+        int c = b + 1 + random.nextInt(n - b - 1);
+        int[] kicked = new int[n];
+        int k = 0;
+        for (int i = 0; i < a; i++) {
+            kicked[k++] = tour[i];
+        }
+        for (int i = b; i < c; i++) {
+            kicked[k++] = tour[i];
+        }
+        for (int i = a; i < b; i++) {
+            kicked[k++] = tour[i];
+        }
+        for (int i = c; i < n; i++) {
+            kicked[k++] = tour[i];
+        }
+        return kicked;
+    }
+}
@@ -0,0 +1,203 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, size-bounded clusters by recursive bisection: each step cuts the
+ * points across their longer side (in km), so that both halves hold a whole
+ * number of near-equal batches. Clusters are visited along a 2-opt improved
+ * path through their centroids; each batch is ordered nearest-neighbor from
+ * where the previous one ended and finishes at the customer closest to the
+ * next cluster.
+ */
+public final class RecursiveBisectionBatching implements BatchingStrategy {
+
+    static final RecursiveBisectionBatching INSTANCE = new RecursiveBisectionBatching();
+
+    private RecursiveBisectionBatching() {
+    }
+
+    @Override
+    public List<List<Customer>> createBatches(double startLat, double startLng, List<Customer> customers, int maxBatchSize) {
+        if (customers.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        GeoPoints points = GeoPoints.of(customers);
+        int[] order = new int[points.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        List<int[]> clusters = new ArrayList<>();
+        bisect(points, order, 0, order.length, Math.max(1, maxBatchSize), clusters);
+        return orderClusters(startLat, startLng, customers, points, order, clusters);
+    }
+
+    private void bisect(GeoPoints points, int[] order, int from, int to, int capacity, List<int[]> clusters) {
+        int n = to - from;
+        if (n <= capacity) {
+            clusters.add(new int[]{from, to});
+            return;
+        }
+
+        double minLat = Double.MAX_VALUE;
+        double maxLat = -Double.MAX_VALUE;
+        double minLng = Double.MAX_VALUE;
+        double maxLng = -Double.MAX_VALUE;
+        for (int p = from; p < to; p++) {
+            int i = order[p];
+            minLat = Math.min(minLat, points.latitude(i));
+            maxLat = Math.max(maxLat, points.latitude(i));
+            minLng = Math.min(minLng, points.longitude(i));
+            maxLng = Math.max(maxLng, points.longitude(i));
+        }
+        // Longitude degrees shrink with cos(latitude)
+        double lngScale = Math.cos(Math.toRadians((minLat + maxLat) * 0.5));
+        boolean splitOnLat = maxLat - minLat >= (maxLng - minLng) * lngScale;
+
+        int batches = (n + capacity - 1) / capacity;
+        int left = (int) ((long) n * (batches / 2) / batches);
+        select(points, order, from, to - 1, from + left, splitOnLat);
+
+        bisect(points, order, from, from + left, capacity, clusters);
+        bisect(points, order, from + left, to, capacity, clusters);
+    }
+
+    private List<List<Customer>> orderClusters(double startLat, double startLng, List<Customer> customers,
+                                               GeoPoints points, int[] order, List<int[]> clusters) {
+        // Node 0 is the start, node c + 1 the centroid of cluster c
+        int count = clusters.size();
+        double[] lats = new double[count + 1];
+        double[] lngs = new double[count + 1];
+        lats[0] = startLat;
+        lngs[0] = startLng;
+        for (int c = 0; c < count; c++) {
+            int[] range = clusters.get(c);
+            for (int p = range[0]; p < range[1]; p++) {
+                lats[c + 1] += points.latitude(order[p]);
+                lngs[c + 1] += points.longitude(order[p]);
+            }
+            lats[c + 1] /= range[1] - range[0];
+            lngs[c + 1] /= range[1] - range[0];
+        }
+        int[] tour = centroidTour(lats, lngs);
+
+        List<List<Customer>> batches = new ArrayList<>(count);
+        double lat = startLat;
+        double lng = startLng;
+        for (int step = 1; step <= count; step++) {
+            int[] range = clusters.get(tour[step] - 1);
+            // Leave the batch from the customer closest to the next cluster
+            int exit = -1;
+            if (step < count) {
+                double best = Double.MAX_VALUE;
+                for (int p = range[0]; p < range[1]; p++) {
+                    double d = points.equirectangularKm(order[p], lats[tour[step + 1]], lngs[tour[step + 1]]);
+                    if (d < best) {
+                        best = d;
+                        exit = p;
+                    }
+                }
+            }
+
+            List<Customer> cluster = new ArrayList<>(range[1] - range[0]);
+            for (int p = range[0]; p < range[1]; p++) {
+                if (p != exit) {
+                    cluster.add(customers.get(order[p]));
+                }
+            }
+            List<Customer> batch = NearestNeighborBatching.sortByNearestNeighbor(lat, lng, cluster);
+            if (exit >= 0) {
+                batch.add(customers.get(order[exit]));
+            }
+            batches.add(batch);
+
+            lat = batch.get(batch.size() - 1).getLatitude();
+            lng = batch.get(batch.size() - 1).getLongitude();
+        }
+        return batches;
+    }
+
+    // Greedy path over the centroids from the start, then 2-opt with the start fixed
+    private int[] centroidTour(double[] lats, double[] lngs) {
+        int n = lats.length;
+        int[] tour = new int[n];
+        boolean[] visited = new boolean[n];
+        visited[0] = true;
+        for (int step = 1; step < n; step++) {
+            int previous = tour[step - 1];
+            int next = -1;
+            double best = Double.MAX_VALUE;
+            for (int c = 1; c < n; c++) {
+                if (!visited[c]) {
+                    double d = distance(previous, c, lats, lngs);
+                    if (d < best) {
+                        best = d;
+                        next = c;
+                    }
+                }
+            }
+            visited[next] = true;
+            tour[step] = next;
+        }
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double before = distance(tour[i - 1], tour[i], lats, lngs)
+                            + (j + 1 < n ? distance(tour[j], tour[j + 1], lats, lngs) : 0.0);
+                    double after = distance(tour[i - 1], tour[j], lats, lngs)
+                            + (j + 1 < n ? distance(tour[i], tour[j + 1], lats, lngs) : 0.0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = t;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return tour;
+    }
+
+    private double distance(int a, int b, double[] lats, double[] lngs) {
+        return GeoPoints.equirectangularKm(lats[a], lngs[a], lats[b], lngs[b]);
+    }
+
+    // Quickselect on order[lo..hi] so that position k holds its sorted element
+    private void select(GeoPoints points, int[] order, int lo, int hi, int k, boolean byLat) {
+        while (hi > lo) {
+            double pivot = key(points, order[(lo + hi) >>> 1], byLat);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key(points, order[i], byLat) < pivot) i++;
+                while (key(points, order[j], byLat) > pivot) j--;
+                if (i <= j) {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private double key(GeoPoints points, int i, boolean byLat) {
+        return byLat ? points.latitude(i) : points.longitude(i);
+    }
+}
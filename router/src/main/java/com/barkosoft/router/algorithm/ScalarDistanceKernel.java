@@ -0,0 +1,25 @@
+package com.barkosoft.router.algorithm;
+
+final class ScalarDistanceKernel implements DistanceKernel {
+
+    static final ScalarDistanceKernel INSTANCE = new ScalarDistanceKernel();
+
+    private ScalarDistanceKernel() {
+    }
+
+    @Override
+    public void chordSquared(double[] xs, double[] ys, double[] zs, int from, int to,
+                             double qx, double qy, double qz, double[] out) {
+        chordSquared(xs, ys, zs, from, to, qx, qy, qz, out, 0);
+    }
+
+    void chordSquared(double[] xs, double[] ys, double[] zs, int from, int to,
+                      double qx, double qy, double qz, double[] out, int outOffset) {
+        for (int i = from; i < to; i++) {
+            double dx = xs[i] - qx;
+            double dy = ys[i] - qy;
+            double dz = zs[i] - qz;
+            out[outOffset + i - from] = dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.barkosoft.router.algorithm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local clean-up of a route stitched from independently optimized batches.
+ * Around each seam, a window of stops is improved with 2-opt and Or-opt moves
+ * on straight-line distance. The stops just outside a window stay fixed, so a
+ * repaired window can be swapped into the route without touching the rest.
+ */
+public final class SeamRepair {
+
+    private final double[] lats;
+    private final double[] lngs;
+
+    /**
+     * @param lats path positions, 0 being the fixed start and 1..n the stops
+     * @param lngs longitudes for the same positions
+     */
+    public SeamRepair(double[] lats, double[] lngs) {
+        this.lats = lats;
+        this.lngs = lngs;
+    }
+
+    /**
+     * A repaired stretch of stops {@code from..to} (path positions, inclusive),
+     * with the positions to visit there in their new order.
+     */
+    public record Window(int from, int to, int[] order, double savedKm) {
+    }
+
+    /**
+     * Repairs the windows of {@code radius} stops on either side of every seam.
+     * A seam is the path position of the first stop of a batch. Overlapping
+     * windows are merged. Only windows that got shorter are returned.
+     */
+    public List<Window> repair(int[] seams, int radius) {
+        int last = lats.length - 1;
+        List<int[]> ranges = new ArrayList<>();
+        for (int seam : seams) {
+            int from = Math.max(1, seam - radius);
+            int to = Math.min(last, seam + radius - 1);
+            if (to <= from) {
+                continue;
+            }
+            if (!ranges.isEmpty() && from <= ranges.get(ranges.size() - 1)[1] + 1) {
+                ranges.get(ranges.size() - 1)[1] = Math.max(ranges.get(ranges.size() - 1)[1], to);
+            } else {
+                ranges.add(new int[]{from, to});
+            }
+        }
+
+        List<Window> windows = new ArrayList<>();
+        for (int[] range : ranges) {
+            Window window = improve(range[0], range[1]);
+            if (window != null) {
+                windows.add(window);
+            }
+        }
+        return windows;
+    }
+
+    private Window improve(int from, int to) {
+        int before = from - 1;
+        int after = to < lats.length - 1 ? to + 1 : -1;
+
+        int[] order = new int[to - from + 1];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = from + i;
+        }
+        double initial = cost(before, order, after);
+        double current = initial;
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+
+            // 2-opt: reverse order[i..j]
+            for (int i = 0; i < order.length - 1 && !improved; i++) {
+                for (int j = i + 1; j < order.length && !improved; j++) {
+                    int[] candidate = order.clone();
+                    for (int a = i, b = j; a < b; a++, b--) {
+                        int t = candidate[a];
+                        candidate[a] = candidate[b];
+                        candidate[b] = t;
+                    }
+                    double c = cost(before, candidate, after);
+                    if (c < current - 1e-9) {
+                        order = candidate;
+                        current = c;
+                        improved = true;
+                    }
+                }
+            }
+
+            // Or-opt: move a run of 1 to 3 stops elsewhere in the window
+            for (int length = 1; length <= 3 && !improved; length++) {
+                for (int i = 0; i + length <= order.length && !improved; i++) {
+                    for (int target = 0; target <= order.length - length && !improved; target++) {
+                        if (target == i) {
+                            continue;
+                        }
+                        int[] candidate = move(order, i, length, target);
+                        double c = cost(before, candidate, after);
+                        if (c < current - 1e-9) {
+                            order = candidate;
+                            current = c;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        return current < initial - 1e-9 ? new Window(from, to, order, initial - current) : null;
+    }
+
+    // Removes order[i, i + length) and reinserts it so that it starts at target
+    private int[] move(int[] order, int i, int length, int target) {
+        int[] rest = new int[order.length - length];
+        int r = 0;
+        for (int k = 0; k < order.length; k++) {
+            if (k < i || k >= i + length) {
+                rest[r++] = order[k];
+            }
+        }
+        int[] moved = new int[order.length];
+        System.arraycopy(rest, 0, moved, 0, target);
+        System.arraycopy(order, i, moved, target, length);
+        System.arraycopy(rest, target, moved, target + length, rest.length - target);
+        return moved;
+    }
+
+    private double cost(int before, int[] order, int after) {
+        double total = distance(before, order[0]);
+        for (int k = 1; k < order.length; k++) {
+            total += distance(order[k - 1], order[k]);
+        }
+        if (after >= 0) {
+            total += distance(order[order.length - 1], after);
+        }
+        return total;
+    }
+
+    private double distance(int a, int b) {
+        return GeoPoints.haversineKm(lats[a], lngs[a], lats[b], lngs[b]);
+    }
+}
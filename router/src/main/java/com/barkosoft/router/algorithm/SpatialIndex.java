@@ -0,0 +1,326 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+
+import java.util.List;
+
+/**
+ * Bucketed k-d tree over customer positions projected onto the unit sphere.
+ * Straight-line (chord) distance on the sphere grows monotonically with the
+ * great-circle distance, so the nearest point by chord is also the nearest by
+ * Haversine. Removal is lazy: points are only flagged, and subtrees without
+ * live points are skipped during search.
+ */
+public class SpatialIndex {
+
+    private static final int LEAF_SIZE = 16;
+
+    private final GeoPoints points;
+    private final int size;
+
+    // Point data in tree order
+    private final int[] customerIndex;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final boolean[] removed;
+    private final int[] positionOf;
+
+    // Node data
+    private final int[] nodeStart;
+    private final int[] nodeEnd;
+    private final int[] nodeLeft;
+    private final int[] nodeRight;
+    private final int[] nodeParent;
+    private final int[] nodeAlive;
+    private final double[] boxMin;
+    private final double[] boxMax;
+    private final int[] leafOf;
+    private int nodeCount;
+
+    private final int[] stack;
+    private final double[] leafDistances = new double[LEAF_SIZE];
+    // Distances of the k-nearest results, grown to the largest k asked for
+    private double[] nearestDistances = new double[0];
+    private final DistanceKernel kernel = DistanceKernels.preferred();
+    private int remaining;
+
+    public SpatialIndex(List<Customer> customers) {
+        this(GeoPoints.of(customers));
+    }
+
+    public SpatialIndex(GeoPoints points) {
+        this.points = points;
+        this.size = points.size();
+        this.customerIndex = new int[size];
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+        this.removed = new boolean[size];
+        this.positionOf = new int[size];
+        this.leafOf = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            customerIndex[i] = i;
+        }
+        System.arraycopy(points.xs(), 0, xs, 0, size);
+        System.arraycopy(points.ys(), 0, ys, 0, size);
+        System.arraycopy(points.zs(), 0, zs, 0, size);
+
+        // Median splits leave at least LEAF_SIZE / 2 points in every leaf
+        int maxNodes = 2 * (size / (LEAF_SIZE / 2) + 1);
+        this.nodeStart = new int[maxNodes];
+        this.nodeEnd = new int[maxNodes];
+        this.nodeLeft = new int[maxNodes];
+        this.nodeRight = new int[maxNodes];
+        this.nodeParent = new int[maxNodes];
+        this.nodeAlive = new int[maxNodes];
+        this.boxMin = new double[maxNodes * 3];
+        this.boxMax = new double[maxNodes * 3];
+        this.stack = new int[maxNodes];
+
+        if (size > 0) {
+            build(0, size, -1);
+        }
+        for (int p = 0; p < size; p++) {
+            positionOf[customerIndex[p]] = p;
+        }
+        this.remaining = size;
+    }
+
+    public int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Returns the index (into the list the index was built from) of the nearest
+     * customer not yet removed, or -1 when every customer has been removed.
+     * Ties are resolved towards the lower list index.
+     */
+    public int nearest(double lat, double lng) {
+        double latRad = Math.toRadians(lat);
+        double lngRad = Math.toRadians(lng);
+        double cosLat = Math.cos(latRad);
+        return nearest(cosLat * Math.cos(lngRad), cosLat * Math.sin(lngRad), Math.sin(latRad));
+    }
+
+    /**
+     * Same as {@link #nearest(double, double)} but measured from a point of the
+     * index itself, reusing its precomputed position.
+     */
+    public int nearestTo(int index) {
+        return nearest(points.xs()[index], points.ys()[index], points.zs()[index]);
+    }
+
+    /**
+     * Writes the up to {@code k} nearest live customers to customer
+     * {@code index}, itself excluded, into {@code out}, closest first.
+     * Returns how many were found.
+     */
+    public int nearestTo(int index, int k, int[] out) {
+        double qx = points.xs()[index];
+        double qy = points.ys()[index];
+        double qz = points.zs()[index];
+        if (nearestDistances.length < k) {
+            nearestDistances = new double[k];
+        }
+        double[] best = nearestDistances;
+        int found = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeAlive[node] == 0 || (found == k && boxDistance(node, qx, qy, qz) > best[k - 1])) {
+                continue;
+            }
+
+            int left = nodeLeft[node];
+            if (left < 0) {
+                int start = nodeStart[node];
+                kernel.chordSquared(xs, ys, zs, start, nodeEnd[node], qx, qy, qz, leafDistances);
+                for (int p = start; p < nodeEnd[node]; p++) {
+                    if (removed[p] || customerIndex[p] == index) {
+                        continue;
+                    }
+                    double d = leafDistances[p - start];
+                    if (found == k && d >= best[k - 1]) {
+                        continue;
+                    }
+                    // Insertion into the sorted result, dropping the farthest when full
+                    int slot = found < k ? found++ : k - 1;
+                    while (slot > 0 && d < best[slot - 1]) {
+                        best[slot] = best[slot - 1];
+                        out[slot] = out[slot - 1];
+                        slot--;
+                    }
+                    best[slot] = d;
+                    out[slot] = customerIndex[p];
+                }
+                continue;
+            }
+
+            int right = nodeRight[node];
+            if (boxDistance(left, qx, qy, qz) <= boxDistance(right, qx, qy, qz)) {
+                stack[top++] = right;
+                stack[top++] = left;
+            } else {
+                stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+        return found;
+    }
+
+    private int nearest(double qx, double qy, double qz) {
+        if (remaining == 0) {
+            return -1;
+        }
+
+        double best = Double.MAX_VALUE;
+        int bestIndex = -1;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int node = stack[--top];
+            if (nodeAlive[node] == 0 || boxDistance(node, qx, qy, qz) > best) {
+                continue;
+            }
+
+            int left = nodeLeft[node];
+            if (left < 0) {
+                int start = nodeStart[node];
+                kernel.chordSquared(xs, ys, zs, start, nodeEnd[node], qx, qy, qz, leafDistances);
+                for (int p = start; p < nodeEnd[node]; p++) {
+                    if (removed[p]) {
+                        continue;
+                    }
+                    double d = leafDistances[p - start];
+                    if (d < best || (d == best && customerIndex[p] < bestIndex)) {
+                        best = d;
+                        bestIndex = customerIndex[p];
+                    }
+                }
+                continue;
+            }
+
+            // Push the farther child first so the nearer one is searched first
+            int right = nodeRight[node];
+            if (boxDistance(left, qx, qy, qz) <= boxDistance(right, qx, qy, qz)) {
+                stack[top++] = right;
+                stack[top++] = left;
+            } else {
+                stack[top++] = left;
+                stack[top++] = right;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    public void remove(int index) {
+        int position = positionOf[index];
+        if (removed[position]) {
+            return;
+        }
+        removed[position] = true;
+        remaining--;
+        for (int node = leafOf[position]; node >= 0; node = nodeParent[node]) {
+            nodeAlive[node]--;
+        }
+    }
+
+    private int build(int start, int end, int parent) {
+        int node = nodeCount++;
+        nodeStart[node] = start;
+        nodeEnd[node] = end;
+        nodeParent[node] = parent;
+        nodeAlive[node] = end - start;
+
+        int box = node * 3;
+        boxMin[box] = boxMin[box + 1] = boxMin[box + 2] = Double.MAX_VALUE;
+        boxMax[box] = boxMax[box + 1] = boxMax[box + 2] = -Double.MAX_VALUE;
+        for (int p = start; p < end; p++) {
+            boxMin[box] = Math.min(boxMin[box], xs[p]);
+            boxMin[box + 1] = Math.min(boxMin[box + 1], ys[p]);
+            boxMin[box + 2] = Math.min(boxMin[box + 2], zs[p]);
+            boxMax[box] = Math.max(boxMax[box], xs[p]);
+            boxMax[box + 1] = Math.max(boxMax[box + 1], ys[p]);
+            boxMax[box + 2] = Math.max(boxMax[box + 2], zs[p]);
+        }
+
+        if (end - start <= LEAF_SIZE) {
+            nodeLeft[node] = -1;
+            nodeRight[node] = -1;
+            for (int p = start; p < end; p++) {
+                leafOf[p] = node;
+            }
+            return node;
+        }
+
+        // Split on the widest axis at the median
+        int axis = 0;
+        double widest = boxMax[box] - boxMin[box];
+        for (int a = 1; a < 3; a++) {
+            double extent = boxMax[box + a] - boxMin[box + a];
+            if (extent > widest) {
+                widest = extent;
+                axis = a;
+            }
+        }
+
+        int mid = (start + end) >>> 1;
+        select(start, end - 1, mid, axis == 0 ? xs : axis == 1 ? ys : zs);
+
+        nodeLeft[node] = build(start, mid, node);
+        nodeRight[node] = build(mid, end, node);
+        return node;
+    }
+
+    private void select(int lo, int hi, int k, double[] keys) {
+        while (hi > lo) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = customerIndex[a];
+        customerIndex[a] = customerIndex[b];
+        customerIndex[b] = index;
+        double t = xs[a];
+        xs[a] = xs[b];
+        xs[b] = t;
+        t = ys[a];
+        ys[a] = ys[b];
+        ys[b] = t;
+        t = zs[a];
+        zs[a] = zs[b];
+        zs[b] = t;
+    }
+
+    private double boxDistance(int node, double qx, double qy, double qz) {
+        int box = node * 3;
+        double dx = Math.max(0.0, Math.max(boxMin[box] - qx, qx - boxMax[box]));
+        double dy = Math.max(0.0, Math.max(boxMin[box + 1] - qy, qy - boxMax[box + 1]));
+        double dz = Math.max(0.0, Math.max(boxMin[box + 2] - qz, qz - boxMax[box + 2]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -0,0 +1,27 @@
+package com.barkosoft.router.algorithm;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// Only loaded when jdk.incubator.vector is part of the boot layer, see DistanceKernels
+final class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void chordSquared(double[] xs, double[] ys, double[] zs, int from, int to,
+                             double qx, double qy, double qz, double[] out) {
+        int i = from;
+        int upper = from + SPECIES.loopBound(to - from);
+
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(qx);
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(qy);
+            DoubleVector dz = DoubleVector.fromArray(SPECIES, zs, i).sub(qz);
+            // Same operation order as the scalar kernel so both give identical results
+            dx.mul(dx).add(dy.mul(dy)).add(dz.mul(dz)).intoArray(out, i - from);
+        }
+
+        ScalarDistanceKernel.INSTANCE.chordSquared(xs, ys, zs, i, to, qx, qy, qz, out, i - from);
+    }
+}
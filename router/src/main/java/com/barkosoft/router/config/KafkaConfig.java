@@ -1,10 +1,15 @@
 package com.barkosoft.router.config;
 
+import com.barkosoft.router.dto.BatchResult;
 import com.barkosoft.router.dto.RouteOptimizationMessage;
+import com.barkosoft.router.serialization.RouteMessageDeserializer;
+import com.barkosoft.router.serialization.RouteMessageSerializer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -20,23 +25,68 @@ import java.util.Map;
 @Configuration
 public class KafkaConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConfig.class);
+
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
 
     @Value("${spring.kafka.consumer.group-id:route-optimization-group}")
     private String groupId;
 
+    @Value("${kafka.serialization.format:binary}")
+    private String serializationFormat;
+
+    @Value("${kafka.producer.compression-type:lz4}")
+    private String compressionType;
+
+    @Value("${kafka.producer.linger-ms:10}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size:131072}")
+    private int batchSizeBytes;
+
+    @Value("${kafka.producer.request-timeout-ms:30000}")
+    private int requestTimeoutMs;
+
+    // KafkaProducer rejects values below linger-ms + request-timeout-ms, see deliveryTimeoutMs()
+    @Value("${kafka.producer.delivery-timeout-ms:120000}")
+    private int deliveryTimeoutMs;
+
+    @Value("${kafka.listener.max-poll-records:50}")
+    private int batchMaxPollRecords;
+
+    @Value("${kafka.listener.max-poll-interval-ms:600000}")
+    private int batchMaxPollIntervalMs;
+
     @Bean
     public ProducerFactory<String, RouteOptimizationMessage> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+                "json".equalsIgnoreCase(serializationFormat) ? JsonSerializer.class : RouteMessageSerializer.class);
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.ACKS_CONFIG, "1");
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        // Let a job's batches share produce requests instead of one request per batch
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSizeBytes);
+        configProps.put(ProducerConfig.REQUEST_TIMEOUT_MS_CONFIG, requestTimeoutMs);
+        configProps.put(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG, deliveryTimeoutMs());
         return new DefaultKafkaProducerFactory<>(configProps);
     }
 
+    // Raised to linger + request timeout when configured lower, which KafkaProducer refuses at construction
+    private int deliveryTimeoutMs() {
+        int minimum = lingerMs + requestTimeoutMs;
+        if (deliveryTimeoutMs < minimum) {
+            logger.warn("kafka.producer.delivery-timeout-ms {} is below linger-ms + request-timeout-ms, using {}",
+                    deliveryTimeoutMs, minimum);
+            return minimum;
+        }
+        return deliveryTimeoutMs;
+    }
+
     @Bean
     public KafkaTemplate<String, RouteOptimizationMessage> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
@@ -48,7 +98,8 @@ public class KafkaConfig {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        // Reads both the binary format and JSON
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, RouteMessageDeserializer.class);
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
@@ -65,4 +116,63 @@ public class KafkaConfig {
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         return factory;
     }
-}
\ No newline at end of file
+
+    // Used when kafka.listener.batch-mode is on: many records per poll, processed concurrently
+    @Bean
+    public ConsumerFactory<String, RouteOptimizationMessage> batchConsumerFactory() {
+        Map<String, Object> props = new HashMap<>(consumerFactory().getConfigurationProperties());
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxPollRecords);
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, batchMaxPollIntervalMs);
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, RouteOptimizationMessage> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, RouteOptimizationMessage> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory());
+        factory.setConcurrency(4);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    @Bean
+    public ProducerFactory<String, BatchResult> batchResultProducerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
+        configProps.put(ProducerConfig.ACKS_CONFIG, "1");
+        configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        return new DefaultKafkaProducerFactory<>(configProps);
+    }
+
+    @Bean
+    public KafkaTemplate<String, BatchResult> batchResultKafkaTemplate() {
+        return new KafkaTemplate<>(batchResultProducerFactory());
+    }
+
+    // Every instance reads all replies under its own group id and keeps the ones it owns
+    @Bean
+    public ConsumerFactory<String, BatchResult> batchResultConsumerFactory() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, true);
+        props.put(JsonDeserializer.TRUSTED_PACKAGES, "com.barkosoft.router.dto");
+        props.put(JsonDeserializer.VALUE_DEFAULT_TYPE, BatchResult.class.getName());
+        return new DefaultKafkaConsumerFactory<>(props);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, BatchResult> batchResultListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, BatchResult> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchResultConsumerFactory());
+        return factory;
+    }
+}
@@ -0,0 +1,41 @@
+package com.barkosoft.router.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Bounded executor for Spring MVC async handling, used to write streamed
+ * (SSE) responses. Without it MVC falls back to SimpleAsyncTaskExecutor,
+ * which starts an unbounded thread per request.
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    @Value("${web.async.core-threads:4}")
+    private int coreThreads;
+
+    @Value("${web.async.max-threads:32}")
+    private int maxThreads;
+
+    @Value("${web.async.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcTaskExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreThreads);
+        executor.setMaxPoolSize(maxThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcTaskExecutor());
+    }
+}
@@ -1,5 +1,7 @@
 package com.barkosoft.router.controller;
 
+import com.barkosoft.router.dto.JobStatusResponse;
+import com.barkosoft.router.dto.RouteChunk;
 import com.barkosoft.router.dto.RouteRequest;
 import com.barkosoft.router.dto.RouteResponse;
 import com.barkosoft.router.service.KafkaRouteProducer;
@@ -9,12 +11,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.time.Duration;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/route")
@@ -38,51 +47,152 @@ public class RouteController {
     private int kafkaBatchThreshold;
 
     @PostMapping("/optimize")
-    public ResponseEntity<RouteResponse> optimizeRoute(@Valid @RequestBody RouteRequest request) {
+    public Mono<ResponseEntity<RouteResponse>> optimizeRoute(@Valid @RequestBody RouteRequest request) {
+        return Mono.defer(() -> {
+                    int customerCount = request.getCustomers().size();
+                    logger.info("Received optimization request for {} customers", customerCount);
+
+                    // Use Kafka for large datasets, direct processing for small ones
+                    if (useKafka(customerCount)) {
+                        return handleWithKafka(request);
+                    } else {
+                        return handleDirectly(request);
+                    }
+                })
+                .onErrorResume(e -> {
+                    logger.error("Route optimization failed: {}", e.getMessage());
+                    RouteResponse errorResponse = new RouteResponse();
+                    errorResponse.setOptimizedCustomerIds(List.of());
+                    errorResponse.setTotalDistance("0,000 km");
+                    errorResponse.setStatus("error");
+                    return Mono.just(ResponseEntity.badRequest().body(errorResponse));
+                });
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<JobStatusResponse> submitJob(@Valid @RequestBody RouteRequest request) {
         try {
             int customerCount = request.getCustomers().size();
-            logger.info("Received optimization request for {} customers", customerCount);
-
-            // Use Kafka for large datasets, direct processing for small ones
-            if (kafkaEnabled && customerCount > kafkaBatchThreshold) {
-                return handleWithKafka(request);
+            logger.info("Received optimization job for {} customers", customerCount);
+
+            String jobId;
+            if (useKafka(customerCount)) {
+                jobId = kafkaRouteProducer.submitOptimizationJob(
+                        request.getStartLatitude(),
+                        request.getStartLongitude(),
+                        request.getCustomers(),
+                        request.getBatchingStrategy(),
+                        request.getParallelism()
+                );
             } else {
-                return handleDirectly(request);
+                jobId = UUID.randomUUID().toString();
+                jobTrackingService.createJob(jobId, 1);
+                routeService.optimizeRouteReactive(
+                        request.getStartLatitude(),
+                        request.getStartLongitude(),
+                        request.getCustomers(),
+                        request.getBatchingStrategy(),
+                        request.getParallelism()
+                ).subscribe(
+                        response -> jobTrackingService.completeJob(jobId, response),
+                        error -> jobTrackingService.failJob(jobId, error.getMessage())
+                );
             }
 
+            JobStatusResponse status = jobTrackingService.getJobStatus(jobId);
+            if (status == null) {
+                status = new JobStatusResponse(jobId, "processing", 0, 0, System.currentTimeMillis(), null);
+            }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/route/jobs/" + jobId))
+                    .body(status);
+
         } catch (Exception e) {
-            logger.error("Route optimization failed: {}", e.getMessage());
-            RouteResponse errorResponse = new RouteResponse();
-            errorResponse.setOptimizedCustomerIds(List.of());
-            errorResponse.setTotalDistance("0,000 km");
+            logger.error("Job submission failed: {}", e.getMessage());
+            JobStatusResponse errorResponse = new JobStatusResponse();
             errorResponse.setStatus("error");
             return ResponseEntity.badRequest().body(errorResponse);
         }
     }
 
-    private ResponseEntity<RouteResponse> handleWithKafka(RouteRequest request) {
-        String jobId = kafkaRouteProducer.submitOptimizationJob(
-                request.getStartLatitude(),
-                request.getStartLongitude(),
-                request.getCustomers()
-        );
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<JobStatusResponse> getJobStatus(@PathVariable String jobId) {
+        JobStatusResponse status = jobTrackingService.getJobStatus(jobId);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(status);
+    }
 
-        // Wait for results with 3-minute timeout
-        RouteResponse response = jobTrackingService.waitForResult(jobId, Duration.ofMinutes(3));
+    @GetMapping("/jobs/{jobId}/result")
+    public ResponseEntity<RouteResponse> getJobResult(@PathVariable String jobId) {
+        RouteResponse result = jobTrackingService.getResult(jobId);
+        if (result == null) {
+            // Still running, or unknown / expired
+            return jobTrackingService.getJobStatus(jobId) != null
+                    ? ResponseEntity.status(HttpStatus.ACCEPTED).build()
+                    : ResponseEntity.notFound().build();
+        }
 
-        if (response.getStatus() != null && response.getStatus().startsWith("error")) {
-            return ResponseEntity.badRequest().body(response);
+        if (result.getStatus() != null && result.getStatus().startsWith("error")) {
+            return ResponseEntity.badRequest().body(result);
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<Object>>> streamJob(@PathVariable String jobId) {
+        Flux<RouteChunk> chunks = jobTrackingService.streamResults(jobId);
+        if (chunks == null) {
+            return ResponseEntity.notFound().build();
         }
 
-        return ResponseEntity.ok(response);
+        // One "batch" event per contiguous stitched prefix, then a final "complete" event
+        Flux<ServerSentEvent<Object>> events = chunks
+                .map(chunk -> ServerSentEvent.<Object>builder(chunk)
+                        .id(String.valueOf(chunk.getToBatch()))
+                        .event("batch")
+                        .build())
+                .concatWith(Mono.fromSupplier(() -> {
+                    JobStatusResponse status = jobTrackingService.getJobStatus(jobId);
+                    return ServerSentEvent.<Object>builder(status != null ? status : "expired")
+                            .event("complete")
+                            .build();
+                }));
+        return ResponseEntity.ok(events);
     }
 
-    private ResponseEntity<RouteResponse> handleDirectly(RouteRequest request) {
-        RouteResponse response = routeService.optimizeRoute(
+    // Routes the local solver orders in one piece stay local; Kafka would split them into batches
+    private boolean useKafka(int customerCount) {
+        return kafkaEnabled && customerCount > kafkaBatchThreshold && !routeService.solvesInOnePiece(customerCount);
+    }
+
+    private Mono<ResponseEntity<RouteResponse>> handleWithKafka(RouteRequest request) {
+        String jobId = kafkaRouteProducer.submitOptimizationJob(
                 request.getStartLatitude(),
                 request.getStartLongitude(),
-                request.getCustomers()
+                request.getCustomers(),
+                request.getBatchingStrategy(),
+                request.getParallelism()
         );
-        return ResponseEntity.ok(response);
+
+        // Wait for results with 3-minute timeout without holding a request thread
+        return jobTrackingService.awaitResult(jobId, Duration.ofMinutes(3))
+                .map(response -> {
+                    if (response.getStatus() != null && response.getStatus().startsWith("error")) {
+                        return ResponseEntity.badRequest().body(response);
+                    }
+                    return ResponseEntity.ok(response);
+                });
+    }
+
+    private Mono<ResponseEntity<RouteResponse>> handleDirectly(RouteRequest request) {
+        return routeService.optimizeRouteReactive(
+                request.getStartLatitude(),
+                request.getStartLongitude(),
+                request.getCustomers(),
+                request.getBatchingStrategy(),
+                request.getParallelism()
+        ).map(ResponseEntity::ok);
     }
-}
\ No newline at end of file
+}
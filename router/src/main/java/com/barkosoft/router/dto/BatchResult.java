@@ -18,6 +18,7 @@ public class BatchResult {
     private Map<Long, int[]> customerGeometryMapping; // Added field
     private boolean success;
     private String errorMessage;
+    private String replyTo;
 
     // Constructor for successful results with geometry and mapping
     public BatchResult(String jobId, int batchIndex, List<Long> optimizedCustomerIds,
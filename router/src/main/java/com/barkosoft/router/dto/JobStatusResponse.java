@@ -0,0 +1,17 @@
+package com.barkosoft.router.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobStatusResponse {
+    private String jobId;
+    private String status;
+    private int totalBatches;
+    private int completedBatches;
+    private long createdAt;
+    private Long completedAt;
+}
@@ -0,0 +1,27 @@
+package com.barkosoft.router.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RouteChunk {
+    private String jobId;
+    private int fromBatch;
+    private int toBatch;
+    private int totalBatches;
+    private List<Long> optimizedCustomerIds;
+    private double distanceKm;
+    private List<List<Double>> routeGeometry;
+
+    // Index in the full route geometry where this chunk's geometry starts
+    private int geometryOffset;
+
+    // Indices are already relative to the full route geometry
+    private Map<Long, int[]> customerGeometryMapping;
+    private List<Integer> failedBatches;
+}
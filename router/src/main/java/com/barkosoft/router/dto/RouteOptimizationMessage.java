@@ -20,6 +20,12 @@ public class RouteOptimizationMessage {
     private Double previousBatchLastLat;
     private Double previousBatchLastLng;
 
+    // Instance that owns the job and expects the batch result back
+    private String replyTo;
+
+    // Cores each local solve of this batch may use; null uses routing.solver.parallelism
+    private Integer parallelism;
+
     // Constructor for backward compatibility
     public RouteOptimizationMessage(String jobId, Double startLatitude, Double startLongitude,
                                     List<Customer> batch, int batchIndex, int totalBatches) {
@@ -1,8 +1,11 @@
 package com.barkosoft.router.dto;
 
+import com.barkosoft.router.algorithm.BatchingStrategies;
 import com.barkosoft.router.dto.Customer;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.Valid;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -21,4 +24,14 @@ public class RouteRequest {
     @NotEmpty
     @Valid
     private List<Customer> customers;
-}
\ No newline at end of file
+
+    // Optional: nearest-neighbor, bisection or hilbert; the configured default when absent
+    @Pattern(regexp = BatchingStrategies.NEAREST_NEIGHBOR + "|" + BatchingStrategies.BISECTION + "|"
+            + BatchingStrategies.HILBERT, flags = Pattern.Flag.CASE_INSENSITIVE,
+            message = "must be one of nearest-neighbor, bisection or hilbert")
+    private String batchingStrategy;
+
+    // Optional: cores each local solve of this request may use, capped by routing.solver.parallelism
+    @Min(1)
+    private Integer parallelism;
+}
@@ -0,0 +1,222 @@
+package com.barkosoft.router.serialization;
+
+import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary layout for {@link RouteOptimizationMessage}.
+ *
+ * <pre>
+ * magic(1) version(1) flags(1) jobId(str) replyTo(str?)
+ * batchIndex(varint) totalBatches(varint) parallelism(varint)?
+ * startLat(8)? startLng(8)? previousLat(8)? previousLng(8)?
+ * count(varint) { id(zigzag delta) lat(zigzag delta) lng(zigzag delta) } * count
+ * </pre>
+ *
+ * Customer coordinates are stored as fixed-point 1e-7 degrees (about 1 cm) and
+ * delta-encoded against the previous customer, which keeps presorted batches
+ * to a few bytes per coordinate. Start and continuation points stay exact.
+ * Version 1 messages, written before parallelism was added, still decode.
+ */
+public final class RouteMessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    static final byte VERSION = 2;
+    static final double COORDINATE_SCALE = 1e7;
+
+    private static final int HAS_START_LAT = 1;
+    private static final int HAS_START_LNG = 1 << 1;
+    private static final int HAS_PREVIOUS_LAT = 1 << 2;
+    private static final int HAS_PREVIOUS_LNG = 1 << 3;
+    private static final int HAS_REPLY_TO = 1 << 4;
+    private static final int HAS_NULL_FIELDS = 1 << 5;
+    private static final int HAS_PARALLELISM = 1 << 6;
+
+    private RouteMessageCodec() {
+    }
+
+    public static byte[] encode(RouteOptimizationMessage message) {
+        List<Customer> batch = message.getBatch() != null ? message.getBatch() : List.of();
+        boolean hasNullFields = batch.stream().anyMatch(customer -> customer == null
+                || customer.getMyId() == null || customer.getLatitude() == null || customer.getLongitude() == null);
+
+        int flags = (message.getStartLatitude() != null ? HAS_START_LAT : 0)
+                | (message.getStartLongitude() != null ? HAS_START_LNG : 0)
+                | (message.getPreviousBatchLastLat() != null ? HAS_PREVIOUS_LAT : 0)
+                | (message.getPreviousBatchLastLng() != null ? HAS_PREVIOUS_LNG : 0)
+                | (message.getReplyTo() != null ? HAS_REPLY_TO : 0)
+                | (hasNullFields ? HAS_NULL_FIELDS : 0)
+                | (message.getParallelism() != null ? HAS_PARALLELISM : 0);
+
+        Writer out = new Writer(64 + batch.size() * 8);
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.write(flags);
+        out.writeString(message.getJobId() != null ? message.getJobId() : "");
+        if (message.getReplyTo() != null) {
+            out.writeString(message.getReplyTo());
+        }
+        out.writeVarint(message.getBatchIndex());
+        out.writeVarint(message.getTotalBatches());
+        if (message.getParallelism() != null) out.writeVarint(message.getParallelism());
+        if (message.getStartLatitude() != null) out.writeDouble(message.getStartLatitude());
+        if (message.getStartLongitude() != null) out.writeDouble(message.getStartLongitude());
+        if (message.getPreviousBatchLastLat() != null) out.writeDouble(message.getPreviousBatchLastLat());
+        if (message.getPreviousBatchLastLng() != null) out.writeDouble(message.getPreviousBatchLastLng());
+
+        out.writeVarint(batch.size());
+        long previousId = 0;
+        long previousLat = 0;
+        long previousLng = 0;
+        for (Customer customer : batch) {
+            if (hasNullFields) {
+                // One presence byte per customer, only when the batch has gaps
+                int present = customer == null ? 0
+                        : (customer.getMyId() != null ? 1 : 0)
+                        | (customer.getLatitude() != null ? 2 : 0)
+                        | (customer.getLongitude() != null ? 4 : 0);
+                out.write(present);
+                if (customer == null) {
+                    continue;
+                }
+            }
+            if (customer.getMyId() != null) {
+                out.writeZigzag(customer.getMyId() - previousId);
+                previousId = customer.getMyId();
+            }
+            if (customer.getLatitude() != null) {
+                long lat = toFixed(customer.getLatitude());
+                out.writeZigzag(lat - previousLat);
+                previousLat = lat;
+            }
+            if (customer.getLongitude() != null) {
+                long lng = toFixed(customer.getLongitude());
+                out.writeZigzag(lng - previousLng);
+                previousLng = lng;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    public static RouteOptimizationMessage decode(byte[] data) {
+        ByteBuffer in = ByteBuffer.wrap(data);
+        if (in.get() != MAGIC) {
+            throw new IllegalArgumentException("Not a binary route message");
+        }
+        byte version = in.get();
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported route message version: " + version);
+        }
+        int flags = in.get() & 0xFF;
+
+        RouteOptimizationMessage message = new RouteOptimizationMessage();
+        message.setJobId(readString(in));
+        if ((flags & HAS_REPLY_TO) != 0) message.setReplyTo(readString(in));
+        message.setBatchIndex((int) readVarint(in));
+        message.setTotalBatches((int) readVarint(in));
+        if ((flags & HAS_PARALLELISM) != 0) message.setParallelism((int) readVarint(in));
+        if ((flags & HAS_START_LAT) != 0) message.setStartLatitude(in.getDouble());
+        if ((flags & HAS_START_LNG) != 0) message.setStartLongitude(in.getDouble());
+        if ((flags & HAS_PREVIOUS_LAT) != 0) message.setPreviousBatchLastLat(in.getDouble());
+        if ((flags & HAS_PREVIOUS_LNG) != 0) message.setPreviousBatchLastLng(in.getDouble());
+
+        boolean hasNullFields = (flags & HAS_NULL_FIELDS) != 0;
+        int count = (int) readVarint(in);
+        List<Customer> batch = new ArrayList<>(count);
+        long id = 0;
+        long lat = 0;
+        long lng = 0;
+        for (int i = 0; i < count; i++) {
+            int present = hasNullFields ? in.get() & 0xFF : 7;
+            if (present == 0 && hasNullFields) {
+                batch.add(null);
+                continue;
+            }
+            Customer customer = new Customer();
+            if ((present & 1) != 0) {
+                id += readZigzag(in);
+                customer.setMyId(id);
+            }
+            if ((present & 2) != 0) {
+                lat += readZigzag(in);
+                customer.setLatitude(lat / COORDINATE_SCALE);
+            }
+            if ((present & 4) != 0) {
+                lng += readZigzag(in);
+                customer.setLongitude(lng / COORDINATE_SCALE);
+            }
+            batch.add(customer);
+        }
+        message.setBatch(batch);
+        return message;
+    }
+
+    private static long toFixed(double degrees) {
+        return Math.round(degrees * COORDINATE_SCALE);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarint(in);
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static long readZigzag(ByteBuffer in) {
+        long value = readVarint(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer(int size) {
+            super(size);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeZigzag(long value) {
+            writeVarint((value << 1) ^ (value >> 63));
+        }
+
+        void writeDouble(double value) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (bits >>> shift));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.barkosoft.router.serialization;
+
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.Map;
+
+/**
+ * Reads the binary format written by {@link RouteMessageSerializer}, and falls
+ * back to JSON for records produced before the switch.
+ */
+public class RouteMessageDeserializer implements Deserializer<RouteOptimizationMessage> {
+
+    private final JsonDeserializer<RouteOptimizationMessage> jsonDeserializer =
+            new JsonDeserializer<>(RouteOptimizationMessage.class);
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public RouteOptimizationMessage deserialize(String topic, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return isBinary(data) ? RouteMessageCodec.decode(data) : jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public RouteOptimizationMessage deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        return isBinary(data) ? RouteMessageCodec.decode(data) : jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+
+    private boolean isBinary(byte[] data) {
+        return data.length > 0 && data[0] == RouteMessageCodec.MAGIC;
+    }
+}
@@ -0,0 +1,12 @@
+package com.barkosoft.router.serialization;
+
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+import org.apache.kafka.common.serialization.Serializer;
+
+public class RouteMessageSerializer implements Serializer<RouteOptimizationMessage> {
+
+    @Override
+    public byte[] serialize(String topic, RouteOptimizationMessage message) {
+        return message != null ? RouteMessageCodec.encode(message) : null;
+    }
+}
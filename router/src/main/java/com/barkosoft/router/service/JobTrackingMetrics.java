@@ -0,0 +1,35 @@
+package com.barkosoft.router.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the size of the job registry so heap growth from retained jobs
+ * shows up in /actuator/metrics.
+ */
+@Component
+public class JobTrackingMetrics {
+
+    @Autowired
+    private JobTrackingService jobTrackingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void registerGauges() {
+        Gauge.builder("router.jobs.live", jobTrackingService, JobTrackingService::getLiveJobCount)
+                .description("Jobs held in the registry, running or awaiting pickup")
+                .register(meterRegistry);
+        Gauge.builder("router.jobs.running", jobTrackingService, JobTrackingService::getRunningJobCount)
+                .description("Jobs still waiting for batch results")
+                .register(meterRegistry);
+        Gauge.builder("router.jobs.retained.geometry", jobTrackingService, JobTrackingService::getRetainedGeometryBytes)
+                .description("Estimated heap held by job route geometry")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+}
@@ -1,170 +1,422 @@
 package com.barkosoft.router.service;
 
 import com.barkosoft.router.dto.BatchResult;
+import com.barkosoft.router.dto.JobStatusResponse;
+import com.barkosoft.router.dto.RouteChunk;
 import com.barkosoft.router.dto.RouteResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Service
 public class JobTrackingService {
 
     private static final Logger logger = LoggerFactory.getLogger(JobTrackingService.class);
 
+    // Rough heap cost of one [lng, lat] point held as List<Double>
+    static final long GEOMETRY_POINT_BYTES = 80;
+
+    @Value("${job.result.retention.minutes:10}")
+    private long resultRetentionMinutes = 10;
+
+    @Value("${job.ttl.minutes:30}")
+    private long jobTtlMinutes = 30;
+
+    @Value("${job.max.retained.geometry.bytes:268435456}")
+    private long maxRetainedGeometryBytes = 256L * 1024 * 1024;
+
+    // Chunks an SSE subscriber may fall behind by before it is dropped; Reactor rounds small sizes up
+    @Value("${job.stream.buffer-chunks:64}")
+    private int streamBufferChunks = 64;
+
+    @Value("${router.instance.id:}")
+    private String configuredInstanceId;
+
+    private volatile String instanceId;
+    private final AtomicLong retainedGeometryBytes = new AtomicLong();
+
     private final Map<String, JobStatus> jobStatuses = new ConcurrentHashMap<>();
-    private final Map<String, RouteResponse> jobResults = new ConcurrentHashMap<>();
-    private final Map<String, CountDownLatch> jobLatches = new ConcurrentHashMap<>();
-    private final Map<String, Map<Integer, BatchResult>> jobBatchResults = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<RouteResponse>> jobResults = new ConcurrentHashMap<>();
+    private final Map<String, RouteAssembly> jobAssemblies = new ConcurrentHashMap<>();
+
+    /**
+     * Identifies this node as the owner of the jobs it creates, so batch results
+     * processed on other nodes can be routed back here. It also names this node's
+     * reply consumer group, so it must survive restarts: {@code router.instance.id}
+     * when set, otherwise the host name.
+     */
+    public String getInstanceId() {
+        String id = instanceId;
+        if (id == null) {
+            id = configuredInstanceId != null && !configuredInstanceId.isBlank()
+                    ? configuredInstanceId : localHostName();
+            instanceId = id;
+        }
+        return id;
+    }
+
+    private static String localHostName() {
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname != null && !hostname.isBlank()) {
+            return hostname;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            throw new IllegalStateException("Host name could not be resolved; set router.instance.id", e);
+        }
+    }
 
     public void createJob(String jobId, int totalBatches) {
+        createJob(jobId, totalBatches, Mono::just);
+    }
+
+    /**
+     * Creates a job whose stitched route goes through seamRepair once the last
+     * batch is in. The result completes with the repaired route, or with the
+     * stitched one if repair fails; streamed chunks always carry the route as
+     * stitched.
+     */
+    public void createJob(String jobId, int totalBatches, Function<RouteResponse, Mono<RouteResponse>> seamRepair) {
         jobStatuses.put(jobId, new JobStatus(totalBatches));
-        jobBatchResults.put(jobId, new ConcurrentHashMap<>());
-        jobLatches.put(jobId, new CountDownLatch(1));
+        jobAssemblies.put(jobId, new RouteAssembly(jobId, totalBatches, seamRepair));
+        jobResults.put(jobId, new CompletableFuture<>());
         logger.info("Created job {} with {} batches", jobId, totalBatches);
     }
 
+    // For jobs whose result is produced in one piece rather than from Kafka batches
+    public void completeJob(String jobId, RouteResponse response) {
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        JobStatus status = jobStatuses.get(jobId);
+        if (result == null || status == null) {
+            logger.warn("Received result for unknown job: {}", jobId);
+            return;
+        }
+        if (!status.markCompleted()) {
+            logger.warn("Ignoring result for already completed job {}", jobId);
+            return;
+        }
+        result.complete(response);
+        RouteAssembly assembly = jobAssemblies.remove(jobId);
+        retain(status, response.getRouteGeometry() != null ? response.getRouteGeometry().size() : 0);
+        emitWholeResponse(jobId, status, response, assembly);
+        logger.info("Job {} completed with {} customer IDs", jobId,
+                response.getOptimizedCustomerIds() != null ? response.getOptimizedCustomerIds().size() : 0);
+        enforceMemoryLimit();
+    }
+
+    public void failJob(String jobId, String message) {
+        logger.error("Job {} failed: {}", jobId, message);
+        completeJob(jobId, createErrorResponse(message));
+    }
+
     public void addBatchResult(BatchResult batchResult) {
         String jobId = batchResult.getJobId();
-        Map<Integer, BatchResult> batchResults = jobBatchResults.get(jobId);
+        RouteAssembly assembly = jobAssemblies.get(jobId);
         JobStatus status = jobStatuses.get(jobId);
+        // Held from here on: once markCompleted runs, eviction may drop the job's map entries
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
 
-        if (batchResults == null || status == null) {
+        if (assembly == null || status == null || result == null) {
             logger.warn("Received result for unknown job: {}", jobId);
             return;
         }
+        if (status.isCompleted()) {
+            logger.warn("Ignoring batch {} result for already completed job {}", batchResult.getBatchIndex(), jobId);
+            return;
+        }
 
-        batchResults.put(batchResult.getBatchIndex(), batchResult);
         logger.info("Received batch {} result for job {} with {} geometry points and {} mappings",
                 batchResult.getBatchIndex(), jobId,
                 batchResult.getRouteGeometry() != null ? batchResult.getRouteGeometry().size() : 0,
                 batchResult.getCustomerGeometryMapping() != null ? batchResult.getCustomerGeometryMapping().size() : 0);
 
-        // Check if all batches completed
-        if (batchResults.size() == status.getTotalBatches()) {
-            RouteResponse finalResponse = aggregateResults(jobId, batchResults);
-            jobResults.put(jobId, finalResponse);
-
-            CountDownLatch latch = jobLatches.get(jobId);
-            if (latch != null) {
-                latch.countDown();
+        RouteChunk chunk;
+        RouteResponse finalResponse = null;
+        synchronized (assembly) {
+            // Chunks copy what they carry, so they are only built for live subscribers
+            chunk = assembly.add(batchResult, status.liveStream() != null);
+            if (chunk != null) {
+                emitChunk(jobId, status, chunk);
             }
-            logger.info("Job {} completed with {} customer IDs, {} geometry points, and {} mappings",
-                    jobId,
-                    finalResponse.getOptimizedCustomerIds().size(),
-                    finalResponse.getRouteGeometry() != null ? finalResponse.getRouteGeometry().size() : 0,
-                    finalResponse.getCustomerGeometryMapping() != null ? finalResponse.getCustomerGeometryMapping().size() : 0);
+            // Check if all batches completed
+            if (assembly.isComplete() && status.markCompleted()) {
+                finalResponse = assembly.toResponse();
+            }
+            retain(status, assembly.getRetainedPoints());
+        }
+
+        if (finalResponse != null) {
+            jobAssemblies.remove(jobId);
+            closeStream(status, null);
+
+            RouteResponse stitched = finalResponse;
+            assembly.repairSeams(stitched)
+                    .defaultIfEmpty(stitched)
+                    .onErrorResume(e -> {
+                        logger.warn("Seam repair failed for job {}, keeping the stitched route: {}", jobId, e.getMessage());
+                        return Mono.just(stitched);
+                    })
+                    .subscribe(response -> {
+                        result.complete(response);
+                        logger.info("Job {} completed with {} customer IDs, {} geometry points, and {} mappings",
+                                jobId,
+                                response.getOptimizedCustomerIds().size(),
+                                response.getRouteGeometry() != null ? response.getRouteGeometry().size() : 0,
+                                response.getCustomerGeometryMapping() != null ? response.getCustomerGeometryMapping().size() : 0);
+                    });
         }
+        enforceMemoryLimit();
     }
 
     public RouteResponse waitForResult(String jobId, Duration timeout) {
-        CountDownLatch latch = jobLatches.get(jobId);
-        if (latch == null) {
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        if (result == null) {
             return createErrorResponse("Job not found");
         }
 
         try {
-            boolean completed = latch.await(timeout.toMillis(), TimeUnit.MILLISECONDS);
-            if (!completed) {
-                logger.warn("Job {} timed out after {} seconds", jobId, timeout.getSeconds());
-                return createErrorResponse("Request timed out");
-            }
-
-            RouteResponse result = jobResults.get(jobId);
-            return result != null ? result : createErrorResponse("Job failed");
-
+            // The result stays available for polling until the retention window expires
+            return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Job {} timed out after {} seconds", jobId, timeout.getSeconds());
+            cleanup(jobId);
+            return createErrorResponse("Request timed out");
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.error("Job {} was interrupted", jobId);
+            cleanup(jobId);
             return createErrorResponse("Request was interrupted");
-        } finally {
+        } catch (ExecutionException e) {
             cleanup(jobId);
+            return createErrorResponse("Job failed");
         }
     }
 
-    private RouteResponse aggregateResults(String jobId, Map<Integer, BatchResult> batchResults) {
-        List<Long> allCustomerIds = new ArrayList<>();
-        List<List<Double>> combinedGeometry = new ArrayList<>();
-        Map<Long, int[]> combinedMapping = new HashMap<>();
-        double totalDistance = 0.0;
-        int geometryOffset = 0;
-
-        // Sort by batch index to maintain order
-        List<Integer> sortedIndices = new ArrayList<>(batchResults.keySet());
-        sortedIndices.sort(Integer::compareTo);
-
-        for (int i = 0; i < sortedIndices.size(); i++) {
-            Integer batchIndex = sortedIndices.get(i);
-            BatchResult result = batchResults.get(batchIndex);
-
-            if (result.isSuccess()) {
-                allCustomerIds.addAll(result.getOptimizedCustomerIds());
-                totalDistance += result.getDistanceKm();
-
-                // Aggregate geometry
-                int batchGeometryStart = combinedGeometry.size();
-                if (result.getRouteGeometry() != null && !result.getRouteGeometry().isEmpty()) {
-                    if (i == 0) {
-                        // First batch - add all points
-                        combinedGeometry.addAll(result.getRouteGeometry());
-                    } else {
-                        // Subsequent batches - skip first point to avoid duplicate
-                        if (result.getRouteGeometry().size() > 1) {
-                            combinedGeometry.addAll(
-                                    result.getRouteGeometry().subList(1, result.getRouteGeometry().size())
-                            );
-                        }
-                    }
-                }
+    /**
+     * Non-blocking variant of {@link #waitForResult(String, Duration)}.
+     */
+    public Mono<RouteResponse> awaitResult(String jobId, Duration timeout) {
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        if (result == null) {
+            return Mono.just(createErrorResponse("Job not found"));
+        }
 
-                // Aggregate customer mapping with offset adjustment
-                if (result.getCustomerGeometryMapping() != null) {
-                    for (Map.Entry<Long, int[]> entry : result.getCustomerGeometryMapping().entrySet()) {
-                        int[] originalIndices = entry.getValue();
-                        // Adjust indices based on current geometry offset
-                        int adjustedStart = originalIndices[0] + geometryOffset;
-                        int adjustedEnd = originalIndices[1] + geometryOffset;
-
-                        // For subsequent batches, if we skipped first point, adjust by -1
-                        if (i > 0 && result.getRouteGeometry() != null && result.getRouteGeometry().size() > 1) {
-                            adjustedStart = Math.max(0, adjustedStart - 1);
-                            adjustedEnd = Math.max(0, adjustedEnd - 1);
-                        }
-
-                        combinedMapping.put(entry.getKey(), new int[]{adjustedStart, adjustedEnd});
-                    }
+        return Mono.fromFuture(result, true)
+                .timeout(timeout)
+                .onErrorResume(TimeoutException.class, e -> {
+                    logger.warn("Job {} timed out after {} seconds", jobId, timeout.getSeconds());
+                    cleanup(jobId);
+                    return Mono.just(createErrorResponse("Request timed out"));
+                });
+    }
+
+    /**
+     * Stitched route chunks in batch order, each pushed as soon as every earlier
+     * batch has arrived. A subscriber joining mid-job first receives everything
+     * stitched so far as one chunk, and one joining after completion receives the
+     * whole route. Chunks are only buffered for subscribers that have not consumed
+     * them yet, at most {@code job.stream.buffer-chunks} each; a subscriber that
+     * falls further behind fails with an overflow error. Returns null for unknown
+     * or expired jobs.
+     */
+    public Flux<RouteChunk> streamResults(String jobId) {
+        JobStatus status = jobStatuses.get(jobId);
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        if (status == null || result == null) {
+            return null;
+        }
+
+        Sinks.Many<RouteChunk> sink = Sinks.many().unicast()
+                .onBackpressureBuffer(Queues.<RouteChunk>get(Math.max(1, streamBufferChunks)).get());
+        RouteAssembly assembly = jobAssemblies.get(jobId);
+        JobStream stream = status.openStream();
+        if (assembly != null && stream != null) {
+            // Chunks are emitted under the assembly lock, so none is missed or repeated
+            synchronized (assembly) {
+                if (stream.register(sink, assembly.prefix())) {
+                    return sink.asFlux().doFinally(signal -> stream.unregister(sink));
                 }
+            }
+        }
 
-                // Update offset for next batch
-                if (result.getRouteGeometry() != null) {
-                    if (i == 0) {
-                        geometryOffset = result.getRouteGeometry().size();
-                    } else if (result.getRouteGeometry().size() > 1) {
-                        // We skipped first point, so add size - 1
-                        geometryOffset += result.getRouteGeometry().size() - 1;
-                    }
+        RouteResponse response = result.getNow(null);
+        return response != null && !isError(response)
+                ? Flux.just(wholeChunk(jobId, status, response)) : Flux.empty();
+    }
+
+    public JobStatusResponse getJobStatus(String jobId) {
+        JobStatus status = jobStatuses.get(jobId);
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        if (status == null || result == null) {
+            return null;
+        }
+
+        String state = "processing";
+        if (result.isDone()) {
+            RouteResponse response = result.getNow(null);
+            state = response != null && response.getStatus() != null && response.getStatus().startsWith("error")
+                    ? "error" : "completed";
+        }
+
+        RouteAssembly assembly = jobAssemblies.get(jobId);
+        int completedBatches = result.isDone() ? status.getTotalBatches()
+                : assembly != null ? assembly.getReceived() : 0;
+
+        return new JobStatusResponse(jobId, state, status.getTotalBatches(), completedBatches,
+                status.getCreatedAt(), status.getCompletedAt() > 0 ? status.getCompletedAt() : null);
+    }
+
+    /**
+     * Returns the final result of a completed job, or null while the job is still
+     * running or once it is no longer known.
+     */
+    public RouteResponse getResult(String jobId) {
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        return result != null ? result.getNow(null) : null;
+    }
+
+    public int getLiveJobCount() {
+        return jobStatuses.size();
+    }
+
+    public int getRunningJobCount() {
+        return (int) jobStatuses.values().stream().filter(status -> !status.isCompleted()).count();
+    }
+
+    public long getRetainedGeometryBytes() {
+        return retainedGeometryBytes.get();
+    }
+
+    /**
+     * Drops completed results once the retention window has passed, and any job,
+     * finished or not, once it is older than the job TTL. Covers jobs nobody waits
+     * for anymore, e.g. when the waiter died or the results went to another node.
+     */
+    @Scheduled(fixedDelayString = "${job.cleanup.interval.ms:60000}")
+    public void purgeExpiredResults() {
+        long now = System.currentTimeMillis();
+        long retentionCutoff = now - TimeUnit.MINUTES.toMillis(resultRetentionMinutes);
+        long ttlCutoff = now - TimeUnit.MINUTES.toMillis(jobTtlMinutes);
+        jobStatuses.forEach((jobId, status) -> {
+            if (status.isCompleted() && status.getCompletedAt() <= retentionCutoff) {
+                cleanup(jobId);
+            } else if (status.getCreatedAt() <= ttlCutoff) {
+                logger.warn("Evicting job {} after exceeding the {} minute TTL", jobId, jobTtlMinutes);
+                expire(jobId, "Job expired");
+            }
+        });
+    }
+
+    private void retain(JobStatus status, long geometryPoints) {
+        retainedGeometryBytes.addAndGet(status.setRetainedBytes(geometryPoints * GEOMETRY_POINT_BYTES));
+    }
+
+    // Evicts the oldest completed results first, then the oldest running jobs
+    private void enforceMemoryLimit() {
+        while (retainedGeometryBytes.get() > maxRetainedGeometryBytes) {
+            String victim = null;
+            JobStatus oldest = null;
+            for (Map.Entry<String, JobStatus> entry : jobStatuses.entrySet()) {
+                JobStatus status = entry.getValue();
+                if (status.getRetainedBytes() == 0) {
+                    continue;
                 }
-            } else {
-                logger.warn("Batch {} failed for job {}: {}", batchIndex, jobId, result.getErrorMessage());
+                if (oldest == null || evictsBefore(status, oldest)) {
+                    oldest = status;
+                    victim = entry.getKey();
+                }
+            }
+            if (victim == null) {
+                return;
             }
+            logger.warn("Evicting job {} holding {} bytes of geometry, retained geometry over {} bytes",
+                    victim, oldest.getRetainedBytes(), maxRetainedGeometryBytes);
+            expire(victim, "Evicted to free memory");
+        }
+    }
+
+    private boolean evictsBefore(JobStatus candidate, JobStatus current) {
+        if (candidate.isCompleted() != current.isCompleted()) {
+            return candidate.isCompleted();
         }
+        return candidate.isCompleted()
+                ? candidate.getCompletedAt() < current.getCompletedAt()
+                : candidate.getCreatedAt() < current.getCreatedAt();
+    }
 
-        String formattedDistance = String.format("%.3f km", totalDistance).replace(".", ",");
+    // Unblocks anyone still waiting on the job before forgetting it
+    private void expire(String jobId, String message) {
+        CompletableFuture<RouteResponse> result = jobResults.get(jobId);
+        JobStatus status = jobStatuses.get(jobId);
+        if (result != null && status != null && status.markCompleted()) {
+            result.complete(createErrorResponse(message));
+        }
+        cleanup(jobId);
+    }
 
-        logger.info("Aggregated {} geometry points and {} mappings for job {}",
-                combinedGeometry.size(), combinedMapping.size(), jobId);
+    private void emitChunk(String jobId, JobStatus status, RouteChunk chunk) {
+        JobStream stream = status.liveStream();
+        if (stream == null) {
+            return;
+        }
+
+        stream.emit(chunk);
+        logger.debug("Streamed batches {}-{} of job {}", chunk.getFromBatch(), chunk.getToBatch(), jobId);
+    }
+
+    private void emitWholeResponse(String jobId, JobStatus status, RouteResponse response, RouteAssembly assembly) {
+        boolean streamed = false;
+        if (assembly != null) {
+            synchronized (assembly) {
+                streamed = assembly.getStitchedBatches() > 0;
+            }
+        }
+        closeStream(status, streamed || isError(response) ? null : wholeChunk(jobId, status, response));
+    }
+
+    private void closeStream(JobStatus status, RouteChunk last) {
+        JobStream stream = status.endStream();
+        if (stream != null) {
+            stream.close(last);
+        }
+    }
 
-        return new RouteResponse(
-                allCustomerIds,
-                formattedDistance,
-                combinedGeometry.isEmpty() ? null : combinedGeometry,
-                combinedMapping.isEmpty() ? null : combinedMapping
-        );
+    private RouteChunk wholeChunk(String jobId, JobStatus status, RouteResponse response) {
+        return new RouteChunk(jobId, 0, status.getTotalBatches() - 1, status.getTotalBatches(),
+                response.getOptimizedCustomerIds(), parseDistance(response.getTotalDistance()),
+                response.getRouteGeometry(), 0, response.getCustomerGeometryMapping(), List.of());
+    }
+
+    private boolean isError(RouteResponse response) {
+        return response.getStatus() != null && response.getStatus().startsWith("error");
+    }
+
+    private double parseDistance(String totalDistance) {
+        try {
+            return Double.parseDouble(totalDistance.replace(" km", "").replace(",", "."));
+        } catch (RuntimeException e) {
+            return 0.0;
+        }
     }
 
     private RouteResponse createErrorResponse(String message) {
@@ -178,22 +430,318 @@ public class JobTrackingService {
     }
 
     private void cleanup(String jobId) {
-        jobStatuses.remove(jobId);
+        JobStatus status = jobStatuses.remove(jobId);
+        if (status != null) {
+            retainedGeometryBytes.addAndGet(status.release());
+        }
         jobResults.remove(jobId);
-        jobLatches.remove(jobId);
-        jobBatchResults.remove(jobId);
+        jobAssemblies.remove(jobId);
+        if (status != null) {
+            closeStream(status, null);
+        }
         logger.debug("Cleaned up job {}", jobId);
     }
 
+    /**
+     * Live SSE subscribers of one job. Each gets its own bounded buffer, which
+     * only holds the chunks that subscriber has not consumed yet. A subscriber
+     * whose buffer is full is dropped with an overflow error.
+     */
+    private static class JobStream {
+        private final List<Sinks.Many<RouteChunk>> subscribers = new ArrayList<>();
+        private boolean closed;
+
+        // Returns false once the stream has ended
+        synchronized boolean register(Sinks.Many<RouteChunk> sink, RouteChunk prefix) {
+            if (closed) {
+                return false;
+            }
+            if (prefix != null) {
+                sink.tryEmitNext(prefix);
+            }
+            subscribers.add(sink);
+            return true;
+        }
+
+        synchronized void unregister(Sinks.Many<RouteChunk> sink) {
+            subscribers.remove(sink);
+        }
+
+        synchronized void emit(RouteChunk chunk) {
+            List<Sinks.Many<RouteChunk>> overflowed = new ArrayList<>();
+            for (Sinks.Many<RouteChunk> sink : subscribers) {
+                if (sink.tryEmitNext(chunk) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    overflowed.add(sink);
+                }
+            }
+            // Failing a sink unregisters it, so only after the loop
+            subscribers.removeAll(overflowed);
+            for (Sinks.Many<RouteChunk> sink : overflowed) {
+                overflow(sink);
+            }
+        }
+
+        synchronized void close(RouteChunk last) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // Completing a sink unregisters it, so work on a copy
+            List<Sinks.Many<RouteChunk>> ending = new ArrayList<>(subscribers);
+            subscribers.clear();
+            for (Sinks.Many<RouteChunk> sink : ending) {
+                if (last != null && sink.tryEmitNext(last) == Sinks.EmitResult.FAIL_OVERFLOW) {
+                    overflow(sink);
+                } else {
+                    sink.tryEmitComplete();
+                }
+            }
+        }
+
+        private static void overflow(Sinks.Many<RouteChunk> sink) {
+            sink.tryEmitError(Exceptions.failWithOverflow("SSE subscriber fell too far behind the job"));
+        }
+    }
+
+    /**
+     * Builds the job's route as batch results arrive. A batch is appended as soon
+     * as every earlier batch is in; batches that arrive early wait in a small
+     * reorder buffer. Payloads are released once appended, so only the stitched
+     * route and the out-of-order batches are held in memory.
+     */
+    private static class RouteAssembly {
+        private final String jobId;
+        private final int totalBatches;
+        private final Function<RouteResponse, Mono<RouteResponse>> seamRepair;
+        private final Map<Integer, BatchResult> pending = new HashMap<>();
+        private final Set<Integer> received = new HashSet<>();
+
+        private final List<Long> customerIds = new ArrayList<>();
+        private final List<List<Double>> geometry = new ArrayList<>();
+        private final Map<Long, int[]> mapping = new HashMap<>();
+        private final List<Integer> failedBatches = new ArrayList<>();
+        private double totalDistance;
+        private int nextBatch;
+        private int pendingPoints;
+
+        RouteAssembly(String jobId, int totalBatches, Function<RouteResponse, Mono<RouteResponse>> seamRepair) {
+            this.jobId = jobId;
+            this.totalBatches = totalBatches;
+            this.seamRepair = seamRepair;
+        }
+
+        /**
+         * Adds a batch and appends whatever became contiguous. Returns the newly
+         * stitched range when buildChunk is set, or null if it is not or the batch
+         * had to wait for a predecessor.
+         */
+        RouteChunk add(BatchResult result, boolean buildChunk) {
+            int batchIndex = result.getBatchIndex();
+            if (batchIndex < nextBatch || !received.add(batchIndex)) {
+                logger.warn("Ignoring duplicate batch {} result for job {}", batchIndex, jobId);
+                return null;
+            }
+            pending.put(batchIndex, result);
+            pendingPoints += geometrySize(result);
+
+            int fromBatch = nextBatch;
+            int idStart = customerIds.size();
+            int geometryStart = geometry.size();
+            double distanceBefore = totalDistance;
+            Map<Long, int[]> chunkMapping = buildChunk ? new HashMap<>() : null;
+            List<Integer> chunkFailedBatches = new ArrayList<>();
+
+            BatchResult next;
+            while ((next = pending.remove(nextBatch)) != null) {
+                pendingPoints -= geometrySize(next);
+                if (!append(nextBatch, next, chunkMapping)) {
+                    chunkFailedBatches.add(nextBatch);
+                    failedBatches.add(nextBatch);
+                }
+                nextBatch++;
+            }
+
+            if (!buildChunk || nextBatch == fromBatch) {
+                return null;
+            }
+
+            List<List<Double>> chunkGeometry = geometry.size() > geometryStart
+                    ? new ArrayList<>(geometry.subList(geometryStart, geometry.size())) : null;
+            return new RouteChunk(jobId, fromBatch, nextBatch - 1, totalBatches,
+                    new ArrayList<>(customerIds.subList(idStart, customerIds.size())),
+                    totalDistance - distanceBefore, chunkGeometry, geometryStart,
+                    chunkMapping.isEmpty() ? null : chunkMapping, chunkFailedBatches);
+        }
+
+        // Copy of everything stitched so far, or null before the first batch is in
+        RouteChunk prefix() {
+            if (nextBatch == 0) {
+                return null;
+            }
+            return new RouteChunk(jobId, 0, nextBatch - 1, totalBatches, new ArrayList<>(customerIds),
+                    totalDistance, geometry.isEmpty() ? null : new ArrayList<>(geometry), 0,
+                    mapping.isEmpty() ? null : new HashMap<>(mapping), new ArrayList<>(failedBatches));
+        }
+
+        // chunkMapping collects the chunk's share of the mapping, null when no chunk is built
+        private boolean append(int batchIndex, BatchResult result, Map<Long, int[]> chunkMapping) {
+            if (!result.isSuccess()) {
+                logger.warn("Batch {} failed for job {}: {}", batchIndex, jobId, result.getErrorMessage());
+                return false;
+            }
+
+            customerIds.addAll(result.getOptimizedCustomerIds());
+            totalDistance += result.getDistanceKm();
+
+            // Later batches start where the previous one ended, so their first point is dropped
+            int geometryOffset = geometry.size();
+            List<List<Double>> batchGeometry = result.getRouteGeometry();
+            boolean skipFirst = batchIndex > 0 && batchGeometry != null && batchGeometry.size() > 1;
+            if (batchGeometry != null && !batchGeometry.isEmpty()) {
+                if (batchIndex == 0) {
+                    geometry.addAll(batchGeometry);
+                } else if (skipFirst) {
+                    geometry.addAll(batchGeometry.subList(1, batchGeometry.size()));
+                }
+            }
+
+            // Shift customer mapping by the geometry already stitched
+            if (result.getCustomerGeometryMapping() != null) {
+                for (Map.Entry<Long, int[]> entry : result.getCustomerGeometryMapping().entrySet()) {
+                    int start = entry.getValue()[0] + geometryOffset;
+                    int end = entry.getValue()[1] + geometryOffset;
+                    if (skipFirst) {
+                        start = Math.max(0, start - 1);
+                        end = Math.max(0, end - 1);
+                    }
+                    int[] adjusted = {start, end};
+                    mapping.put(entry.getKey(), adjusted);
+                    if (chunkMapping != null) {
+                        chunkMapping.put(entry.getKey(), adjusted);
+                    }
+                }
+            }
+            return true;
+        }
+
+        boolean isComplete() {
+            return nextBatch >= totalBatches;
+        }
+
+        int getReceived() {
+            return received.size();
+        }
+
+        int getStitchedBatches() {
+            return nextBatch;
+        }
+
+        // Geometry points held by the stitched route and the reorder buffer
+        int getRetainedPoints() {
+            return geometry.size() + pendingPoints;
+        }
+
+        private static int geometrySize(BatchResult result) {
+            return result.getRouteGeometry() != null ? result.getRouteGeometry().size() : 0;
+        }
+
+        Mono<RouteResponse> repairSeams(RouteResponse stitched) {
+            return seamRepair.apply(stitched);
+        }
+
+        // Hands the stitched lists over to the response without copying
+        RouteResponse toResponse() {
+            String formattedDistance = String.format("%.3f km", totalDistance).replace(".", ",");
+
+            logger.info("Aggregated {} geometry points and {} mappings for job {}",
+                    geometry.size(), mapping.size(), jobId);
+
+            return new RouteResponse(
+                    customerIds,
+                    formattedDistance,
+                    geometry.isEmpty() ? null : geometry,
+                    mapping.isEmpty() ? null : mapping
+            );
+        }
+    }
+
     private static class JobStatus {
         private final int totalBatches;
         private final long createdAt;
+        private volatile long completedAt;
+        private boolean completed;
+        private long retainedBytes;
+        private boolean released;
+        private JobStream stream;
+        private boolean streamEnded;
 
         public JobStatus(int totalBatches) {
             this.totalBatches = totalBatches;
             this.createdAt = System.currentTimeMillis();
         }
 
+        // Returns true only for the caller that completes the job
+        public synchronized boolean markCompleted() {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+            completedAt = System.currentTimeMillis();
+            return true;
+        }
+
+        public synchronized boolean isCompleted() {
+            return completed;
+        }
+
+        // Returns the change against the previously recorded amount
+        public synchronized long setRetainedBytes(long bytes) {
+            if (released) {
+                return 0;
+            }
+            long delta = bytes - retainedBytes;
+            retainedBytes = bytes;
+            return delta;
+        }
+
+        // Stops accounting for a job that has been dropped from the registry
+        public synchronized long release() {
+            long delta = -retainedBytes;
+            retainedBytes = 0;
+            released = true;
+            return delta;
+        }
+
+        // Created on the first SSE subscription; null once the stream has ended
+        public synchronized JobStream openStream() {
+            if (streamEnded) {
+                return null;
+            }
+            if (stream == null) {
+                stream = new JobStream();
+            }
+            return stream;
+        }
+
+        public synchronized JobStream liveStream() {
+            return stream;
+        }
+
+        public synchronized JobStream endStream() {
+            streamEnded = true;
+            JobStream ended = stream;
+            stream = null;
+            return ended;
+        }
+
+        public synchronized long getRetainedBytes() {
+            return retainedBytes;
+        }
+
+        public long getCompletedAt() {
+            return completedAt;
+        }
+
         public int getTotalBatches() {
             return totalBatches;
         }
@@ -0,0 +1,37 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.dto.BatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Receives batch results that were processed on another node and feeds those
+ * belonging to jobs created here into {@link JobTrackingService}.
+ */
+@Service
+@ConditionalOnProperty(name = "kafka.enabled", havingValue = "true", matchIfMissing = true)
+public class KafkaReplyConsumer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaReplyConsumer.class);
+
+    @Autowired
+    private JobTrackingService jobTrackingService;
+
+    @KafkaListener(
+            topics = "${kafka.reply.topic:route-optimization-results}",
+            groupId = "#{'${spring.kafka.consumer.group-id:route-optimization-group}-replies-' + @jobTrackingService.instanceId}",
+            containerFactory = "batchResultListenerContainerFactory"
+    )
+    public void processReply(BatchResult result) {
+        if (!jobTrackingService.getInstanceId().equals(result.getReplyTo())) {
+            return;
+        }
+
+        logger.debug("Received batch {} result for job {} from reply topic", result.getBatchIndex(), result.getJobId());
+        jobTrackingService.addBatchResult(result);
+    }
+}
@@ -7,14 +7,19 @@ import com.barkosoft.router.dto.RouteResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -22,6 +27,7 @@ import java.util.stream.Collectors;
 public class KafkaRouteConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(KafkaRouteConsumer.class);
+    private static final Duration REDELIVERY_DELAY = Duration.ofSeconds(1);
 
     @Autowired
     private RouteService routeService;
@@ -29,12 +35,27 @@ public class KafkaRouteConsumer {
     @Autowired
     private JobTrackingService jobTrackingService;
 
+    @Autowired
+    private KafkaTemplate<String, BatchResult> batchResultKafkaTemplate;
+
+    @Value("${kafka.reply.topic:route-optimization-results}")
+    private String replyTopic = "route-optimization-results";
+
+    // How long a reply may take to reach the broker before its record is left unacknowledged
+    @Value("${kafka.reply.send-timeout-ms:35000}")
+    private long replySendTimeoutMs = 35000;
+
+    @Value("${kafka.listener.batch-concurrency:16}")
+    private int batchConcurrency = 16;
+
     @RetryableTopic(
+            kafkaTemplate = "kafkaTemplate",
             attempts = "3",
             backoff = @Backoff(delay = 2000, multiplier = 2.0),
             dltStrategy = org.springframework.kafka.retrytopic.DltStrategy.FAIL_ON_ERROR
     )
-    @KafkaListener(topics = "route-optimization-requests")
+    @KafkaListener(topics = "route-optimization-requests",
+            autoStartup = "#{!${kafka.listener.batch-mode:false}}")
     public void processBatch(RouteOptimizationMessage message,
                              @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
                              @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
@@ -45,61 +66,132 @@ public class KafkaRouteConsumer {
 
         logger.info("Processing batch {} for job {} (partition: {})", batchIndex, jobId, partition);
 
+        BatchResult result;
         try {
-            // Use previous batch's last location if available, otherwise use original start
-            Double effectiveStartLat = message.getPreviousBatchLastLat() != null ?
-                    message.getPreviousBatchLastLat() : message.getStartLatitude();
-            Double effectiveStartLng = message.getPreviousBatchLastLng() != null ?
-                    message.getPreviousBatchLastLng() : message.getStartLongitude();
-
-            logger.debug("Batch {} using start point: ({}, {})", batchIndex, effectiveStartLat, effectiveStartLng);
-
             RouteResponse batchResponse = routeService.optimizeSingleBatch(
-                    effectiveStartLat,
-                    effectiveStartLng,
-                    message.getBatch()
+                    effectiveStartLat(message),
+                    effectiveStartLng(message),
+                    message.getBatch(),
+                    message.getParallelism()
             );
+            result = createResult(message, batchResponse);
 
-            double distanceKm = parseDistanceFromResponse(batchResponse.getTotalDistance());
+        } catch (Exception e) {
+            logger.error("Failed to process batch {} for job {}: {}", batchIndex, jobId, e.getMessage());
+            result = createErrorResult(message, e);
+        }
 
-            BatchResult result = new BatchResult(
-                    jobId,
-                    batchIndex,
-                    batchResponse.getOptimizedCustomerIds(),
-                    distanceKm,
-                    batchResponse.getRouteGeometry(),
-                    batchResponse.getCustomerGeometryMapping()
-            );
+        // A reply that never reached the broker throws here, so the record is retried instead of acknowledged
+        deliver(result, message.getReplyTo()).block();
+        ack.acknowledge();
+    }
 
-            jobTrackingService.addBatchResult(result);
+    /**
+     * Batch-mode counterpart of {@link #processBatch}: takes a whole poll and runs up
+     * to {@code kafka.listener.batch-concurrency} OSRM batches at once. Offsets are
+     * acknowledged once every record of the poll has been handled; if a result
+     * could not be delivered, the poll is nacked from the first such record.
+     */
+    @KafkaListener(id = "route-optimization-batch-listener",
+            topics = "route-optimization-requests",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            autoStartup = "${kafka.listener.batch-mode:false}")
+    public void processBatches(List<RouteOptimizationMessage> messages, Acknowledgment ack) {
+        logger.info("Processing {} batches from one poll", messages.size());
+
+        Integer firstUndelivered = Flux.range(0, messages.size())
+                .flatMap(index -> optimize(messages.get(index))
+                        .flatMap(result -> deliver(result, messages.get(index).getReplyTo()))
+                        .then(Mono.<Integer>empty())
+                        .onErrorResume(e -> Mono.just(index)),
+                        Math.max(1, batchConcurrency))
+                .reduce(Math::min)
+                .block();
+
+        if (firstUndelivered == null) {
             ack.acknowledge();
+        } else {
+            logger.warn("Redelivering poll from record {} of {}", firstUndelivered, messages.size());
+            ack.nack(firstUndelivered, REDELIVERY_DELAY);
+        }
+    }
 
-            logger.info("Completed batch {} for job {} with {} customers, {} geometry points, and {} mappings",
-                    batchIndex, jobId,
-                    batchResponse.getOptimizedCustomerIds().size(),
-                    batchResponse.getRouteGeometry() != null ? batchResponse.getRouteGeometry().size() : 0,
-                    batchResponse.getCustomerGeometryMapping() != null ? batchResponse.getCustomerGeometryMapping().size() : 0);
+    private Mono<BatchResult> optimize(RouteOptimizationMessage message) {
+        logger.debug("Processing batch {} for job {}", message.getBatchIndex(), message.getJobId());
+        return Mono.defer(() -> routeService.optimizeSingleBatchReactive(
+                        effectiveStartLat(message),
+                        effectiveStartLng(message),
+                        message.getBatch(),
+                        message.getParallelism()))
+                .map(response -> createResult(message, response))
+                .onErrorResume(e -> {
+                    logger.error("Failed to process batch {} for job {}: {}",
+                            message.getBatchIndex(), message.getJobId(), e.getMessage());
+                    return Mono.just(createErrorResult(message, e));
+                });
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to process batch {} for job {}: {}", batchIndex, jobId, e.getMessage());
+    // Use previous batch's last location if available, otherwise use original start
+    private Double effectiveStartLat(RouteOptimizationMessage message) {
+        return message.getPreviousBatchLastLat() != null ?
+                message.getPreviousBatchLastLat() : message.getStartLatitude();
+    }
 
-            List<Long> fallbackIds = message.getBatch().stream()
-                    .map(Customer::getMyId)
-                    .collect(Collectors.toList());
-
-            BatchResult errorResult = new BatchResult();
-            errorResult.setJobId(jobId);
-            errorResult.setBatchIndex(batchIndex);
-            errorResult.setOptimizedCustomerIds(fallbackIds);
-            errorResult.setDistanceKm(0.0);
-            errorResult.setRouteGeometry(null);
-            errorResult.setCustomerGeometryMapping(null);
-            errorResult.setSuccess(false);
-            errorResult.setErrorMessage(e.getMessage());
-
-            jobTrackingService.addBatchResult(errorResult);
-            ack.acknowledge();
+    private Double effectiveStartLng(RouteOptimizationMessage message) {
+        return message.getPreviousBatchLastLng() != null ?
+                message.getPreviousBatchLastLng() : message.getStartLongitude();
+    }
+
+    private BatchResult createResult(RouteOptimizationMessage message, RouteResponse batchResponse) {
+        double distanceKm = parseDistanceFromResponse(batchResponse.getTotalDistance());
+
+        logger.info("Completed batch {} for job {} with {} customers, {} geometry points, and {} mappings",
+                message.getBatchIndex(), message.getJobId(),
+                batchResponse.getOptimizedCustomerIds().size(),
+                batchResponse.getRouteGeometry() != null ? batchResponse.getRouteGeometry().size() : 0,
+                batchResponse.getCustomerGeometryMapping() != null ? batchResponse.getCustomerGeometryMapping().size() : 0);
+
+        return new BatchResult(
+                message.getJobId(),
+                message.getBatchIndex(),
+                batchResponse.getOptimizedCustomerIds(),
+                distanceKm,
+                batchResponse.getRouteGeometry(),
+                batchResponse.getCustomerGeometryMapping()
+        );
+    }
+
+    private BatchResult createErrorResult(RouteOptimizationMessage message, Throwable e) {
+        List<Long> fallbackIds = message.getBatch().stream()
+                .map(Customer::getMyId)
+                .collect(Collectors.toList());
+
+        BatchResult errorResult = new BatchResult();
+        errorResult.setJobId(message.getJobId());
+        errorResult.setBatchIndex(message.getBatchIndex());
+        errorResult.setOptimizedCustomerIds(fallbackIds);
+        errorResult.setDistanceKm(0.0);
+        errorResult.setRouteGeometry(null);
+        errorResult.setCustomerGeometryMapping(null);
+        errorResult.setSuccess(false);
+        errorResult.setErrorMessage(e.getMessage());
+        return errorResult;
+    }
+
+    // Results for jobs owned by another node go back through the reply topic; completes once the broker has them
+    private Mono<Void> deliver(BatchResult result, String replyTo) {
+        if (replyTo == null || replyTo.equals(jobTrackingService.getInstanceId())) {
+            return Mono.fromRunnable(() -> jobTrackingService.addBatchResult(result));
         }
+
+        result.setReplyTo(replyTo);
+        return Mono.fromFuture(() -> batchResultKafkaTemplate.send(replyTopic, result.getJobId(), result))
+                .timeout(Duration.ofMillis(replySendTimeoutMs))
+                .doOnSuccess(sent -> logger.debug("Sent batch {} result for job {} to owner {}",
+                        result.getBatchIndex(), result.getJobId(), replyTo))
+                .doOnError(e -> logger.error("Could not send batch {} result for job {} to owner {}: {}",
+                        result.getBatchIndex(), result.getJobId(), replyTo, e.getMessage()))
+                .then();
     }
 
     private double parseDistanceFromResponse(String totalDistance) {
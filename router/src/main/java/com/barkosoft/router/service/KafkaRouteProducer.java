@@ -1,16 +1,26 @@
 package com.barkosoft.router.service;
 
+import com.barkosoft.router.algorithm.BatchingStrategies;
+import com.barkosoft.router.algorithm.Geohash;
 import com.barkosoft.router.dto.Customer;
 import com.barkosoft.router.dto.RouteOptimizationMessage;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class KafkaRouteProducer {
@@ -19,26 +29,62 @@ public class KafkaRouteProducer {
     private static final String TOPIC = "route-optimization-requests";
     private static final int BATCH_SIZE = 95;
 
+    private static final String GEOHASH_STRATEGY = "geohash";
+
+    // round-robin, or geohash to keep batches of one region on one partition
+    @Value("${kafka.partitioning.strategy:round-robin}")
+    private String partitioningStrategy = "round-robin";
+
+    @Value("${kafka.partitioning.geohash-precision:4}")
+    private int geohashPrecision = 4;
+
+    @Value("${kafka.topic.partitions:10}")
+    private int fallbackPartitions = 10;
+
+    // Round-robin position shared by all jobs, so consecutive jobs start on different partitions
+    private final AtomicInteger partitionCursor = new AtomicInteger();
+
+    @Value("${routing.batching.strategy:bisection}")
+    private String batchingStrategy = BatchingStrategies.BISECTION;
+
     @Autowired
     private KafkaTemplate<String, RouteOptimizationMessage> kafkaTemplate;
 
     @Autowired
     private JobTrackingService jobTrackingService;
 
+    @Autowired
+    private RouteService routeService;
+
     public String submitOptimizationJob(Double startLat, Double startLng, List<Customer> customers) {
-        String jobId = UUID.randomUUID().toString();
+        return submitOptimizationJob(startLat, startLng, customers, null);
+    }
 
-        // Sort customers using nearest neighbor (Haversine)
-        List<Customer> sortedCustomers = sortCustomersByNearestNeighbor(startLat, startLng, customers);
+    // strategy overrides routing.batching.strategy for this job when not null
+    public String submitOptimizationJob(Double startLat, Double startLng, List<Customer> customers, String strategy) {
+        return submitOptimizationJob(startLat, startLng, customers, strategy, null);
+    }
 
-        // Create batches from sorted list
-        List<List<Customer>> batches = createBatches(sortedCustomers);
-        jobTrackingService.createJob(jobId, batches.size());
+    // parallelism travels with every batch and caps the consumer's local solver; null uses its configured value
+    public String submitOptimizationJob(Double startLat, Double startLng, List<Customer> customers, String strategy,
+                                        Integer parallelism) {
+        String batching = strategy != null ? strategy : batchingStrategy;
+        String jobId = UUID.randomUUID().toString();
 
-        logger.info("Submitting job {} with {} customers in {} batches (pre-sorted)",
-                jobId, customers.size(), batches.size());
+        // Batches come back in visiting order, each ending where the next one starts
+        List<List<Customer>> batches = BatchingStrategies.forName(batching)
+                .createBatches(startLat, startLng, customers, BATCH_SIZE);
+        jobTrackingService.createJob(jobId, batches.size(),
+                stitched -> routeService.repairStitchedRoute(startLat, startLng, batches, stitched));
 
-        // Send batches with proper start coordinates
+        logger.info("Submitting job {} with {} customers in {} batches ({} batching)",
+                jobId, customers.size(), batches.size(), batching);
+
+        // Send batches with proper start coordinates; sends are pipelined and tracked below.
+        // The producer retries failed sends itself until delivery.timeout.ms runs out
+        List<CompletableFuture<SendResult<String, RouteOptimizationMessage>>> sends = new ArrayList<>(batches.size());
+        int partitions = partitionCount();
+        int firstPartition = Math.floorMod(partitionCursor.getAndAdd(batches.size()), partitions);
         for (int i = 0; i < batches.size(); i++) {
             RouteOptimizationMessage message = new RouteOptimizationMessage();
             message.setJobId(jobId);
@@ -47,6 +93,8 @@ public class KafkaRouteProducer {
             message.setBatch(batches.get(i));
             message.setBatchIndex(i);
             message.setTotalBatches(batches.size());
+            message.setReplyTo(jobTrackingService.getInstanceId());
+            message.setParallelism(parallelism);
 
             // Set previous batch's last customer as starting point (except for first batch)
             if (i > 0) {
@@ -56,78 +104,54 @@ public class KafkaRouteProducer {
                 message.setPreviousBatchLastLng(lastCustomer.getLongitude());
             }
 
-            int targetPartition = i % 5;
-            kafkaTemplate.send(TOPIC, targetPartition, UUID.randomUUID().toString(), message);
+            String key = UUID.randomUUID().toString();
+            int targetPartition = (firstPartition + i) % partitions;
+            if (GEOHASH_STRATEGY.equalsIgnoreCase(partitioningStrategy)) {
+                // Same region, same partition, same consumer and its warm caches
+                String geohash = Geohash.ofCentroid(batches.get(i), geohashPrecision);
+                if (geohash != null) {
+                    key = geohash;
+                    targetPartition = Utils.toPositive(Utils.murmur2(geohash.getBytes(StandardCharsets.UTF_8))) % partitions;
+                }
+            }
+            try {
+                sends.add(kafkaTemplate.send(TOPIC, targetPartition, key, message));
+            } catch (RuntimeException e) {
+                // send() itself threw (serialization, metadata timeout), so no future will fail the job
+                jobTrackingService.failJob(jobId, "Failed to send batches to Kafka: " + e.getMessage());
+                throw e;
+            }
             logger.debug("Sent batch {} for job {} to partition {}", i, jobId, targetPartition);
         }
 
-        return jobId;
-    }
-
-    private List<Customer> sortCustomersByNearestNeighbor(Double startLat, Double startLng, List<Customer> customers) {
-        if (customers.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        List<Customer> remaining = new ArrayList<>(customers);
-        List<Customer> sorted = new ArrayList<>();
-
-        Double currentLat = startLat;
-        Double currentLng = startLng;
-
-        // Greedy nearest neighbor algorithm
-        while (!remaining.isEmpty()) {
-            Customer nearest = findNearestCustomer(currentLat, currentLng, remaining);
-            sorted.add(nearest);
-            remaining.remove(nearest);
-            currentLat = nearest.getLatitude();
-            currentLng = nearest.getLongitude();
-        }
+        CompletableFuture.allOf(sends.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        logger.debug("All {} batches of job {} acknowledged by Kafka", sends.size(), jobId);
+                        return;
+                    }
+                    // Fail the job now instead of letting it wait for batches that were never sent
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    jobTrackingService.failJob(jobId, "Failed to send batches to Kafka: " + cause.getMessage());
+                });
 
-        logger.info("Sorted {} customers using nearest neighbor algorithm", sorted.size());
-        return sorted;
+        return jobId;
     }
 
-    private Customer findNearestCustomer(Double lat, Double lng, List<Customer> customers) {
-        Customer nearest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        for (Customer customer : customers) {
-            double distance = calculateHaversineDistance(lat, lng,
-                    customer.getLatitude(),
-                    customer.getLongitude());
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = customer;
+    /**
+     * Live partition count of the request topic, from the producer's metadata.
+     * Falls back to {@code kafka.topic.partitions} when metadata is unavailable.
+     */
+    private int partitionCount() {
+        try {
+            List<PartitionInfo> partitions = kafkaTemplate.partitionsFor(TOPIC);
+            if (partitions != null && !partitions.isEmpty()) {
+                return partitions.size();
             }
+        } catch (RuntimeException e) {
+            logger.warn("Could not read partitions of {}: {}", TOPIC, e.getMessage());
         }
-
-        return nearest;
-    }
-
-    private double calculateHaversineDistance(Double lat1, Double lng1, Double lat2, Double lng2) {
-        final double R = 6371.0; // Earth radius in kilometers
-
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLng = Math.toRadians(lng2 - lng1);
-
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
-
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        return R * c;
-    }
-
-    private List<List<Customer>> createBatches(List<Customer> customers) {
-        List<List<Customer>> batches = new ArrayList<>();
-
-        for (int i = 0; i < customers.size(); i += BATCH_SIZE) {
-            int endIndex = Math.min(i + BATCH_SIZE, customers.size());
-            batches.add(new ArrayList<>(customers.subList(i, endIndex)));
-        }
-
-        return batches;
+        return Math.max(1, fallbackPartitions);
     }
-}
\ No newline at end of file
+}
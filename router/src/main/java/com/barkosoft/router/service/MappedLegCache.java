@@ -0,0 +1,206 @@
+package com.barkosoft.router.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Leg distances learned from OSRM, kept in a memory-mapped file so they
+ * survive restarts and are shared by every JVM on the host that maps the same
+ * file. The file is an open-addressing hash table of fixed 32-byte slots keyed
+ * by the quantized from and to coordinates, read in place without copying.
+ *
+ * <p>Each slot has a version word used like a seqlock: 0 is empty, odd means a
+ * writer holds the slot, even means stable. Writers claim a slot with a CAS to
+ * an odd word carrying the claim minute and publish with a release store of
+ * the next even version. Readers skip a slot whose version is odd or moved
+ * while they read. A claim older than {@link #ABANDONED_CLAIM_MINUTES} belongs
+ * to a writer that died mid-update; writers take such a slot over. Entries are
+ * never removed; a full probe window simply drops the insert.
+ */
+class MappedLegCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedLegCache.class);
+
+    private static final int MAGIC = 0x4C454732; // "LEG2"
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 32;
+    private static final int MAX_PROBES = 32;
+    private static final int MAX_SLOTS = 1 << 25;
+
+    static final int ABANDONED_CLAIM_MINUTES = 2;
+
+    // Slot layout, padded to 32 bytes so the keys stay 8-byte aligned
+    private static final int FROM = 0;
+    private static final int TO = 8;
+    private static final int DISTANCE = 16;
+    private static final int WRITTEN_MINUTE = 20;
+    private static final int VERSION = 24;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final MappedByteBuffer buffer;
+    private final int mask;
+    private final double scale;
+    private final long ttlMinutes;
+
+    private MappedLegCache(MappedByteBuffer buffer, int slots, int decimals, long ttlMinutes) {
+        this.buffer = buffer;
+        this.mask = slots - 1;
+        this.scale = Math.pow(10, decimals);
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    /**
+     * Maps {@code path}, creating it when missing. A file written with a
+     * different slot count or precision is reset. The check and the reset run
+     * under an exclusive file lock, so JVMs opening the file together do not
+     * wipe each other's entries. File locks are held per JVM, so opens within
+     * one JVM are serialized as well.
+     *
+     * @param slots    table size, rounded up to a power of two
+     * @param decimals coordinate precision of the keys
+     */
+    static synchronized MappedLegCache open(Path path, int slots, int decimals, long ttlMinutes) throws IOException {
+        int capacity = Integer.highestOneBit(Math.max(2, Math.min(slots, MAX_SLOTS) - 1)) << 1;
+        long size = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != capacity || buffer.getInt(8) != decimals) {
+                logger.info("Initializing leg cache {} with {} slots", path, capacity);
+                for (long offset = 0; offset < size; offset += 8) {
+                    buffer.putLong((int) offset, 0L);
+                }
+                buffer.putInt(4, capacity);
+                buffer.putInt(8, decimals);
+                buffer.putInt(0, MAGIC);
+                buffer.force();
+            }
+            // The mapping stays valid after the channel is closed
+            return new MappedLegCache(buffer, capacity, decimals, ttlMinutes);
+        }
+    }
+
+    /**
+     * Returns the cached distance in kilometres between two points, or NaN when
+     * unknown or expired.
+     */
+    float get(double fromLat, double fromLng, double toLat, double toLng) {
+        long from = key(fromLat, fromLng);
+        long to = key(toLat, toLng);
+        int now = currentMinute();
+        int slot = slotOf(from, to);
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            int base = offset(slot);
+            int version = (int) INT.getAcquire(buffer, base + VERSION);
+            if (version == 0) {
+                return Float.NaN;
+            }
+            // Being written, or left behind by a writer that died: a miss for this slot
+            if ((version & 1) != 0) {
+                continue;
+            }
+            long slotFrom = (long) LONG.get(buffer, base + FROM);
+            long slotTo = (long) LONG.get(buffer, base + TO);
+            float distance = buffer.getFloat(base + DISTANCE);
+            int written = buffer.getInt(base + WRITTEN_MINUTE);
+            // Torn read if a writer got in between
+            VarHandle.acquireFence();
+            if ((int) INT.getVolatile(buffer, base + VERSION) != version) {
+                continue;
+            }
+            if (slotFrom == from && slotTo == to) {
+                return now - written <= ttlMinutes ? distance : Float.NaN;
+            }
+        }
+        return Float.NaN;
+    }
+
+    /**
+     * Stores or refreshes a leg. Returns false when no slot could be claimed.
+     */
+    boolean put(double fromLat, double fromLng, double toLat, double toLng, float distanceKm) {
+        long from = key(fromLat, fromLng);
+        long to = key(toLat, toLng);
+        int now = currentMinute();
+        int claim = now << 1 | 1;
+        int slot = slotOf(from, to);
+        for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & mask) {
+            int base = offset(slot);
+            int version = (int) INT.getAcquire(buffer, base + VERSION);
+            if ((version & 1) != 0) {
+                // Whatever the dead writer left is unusable, so the slot is reused for this key
+                if (now - (version >>> 1) >= ABANDONED_CLAIM_MINUTES
+                        && INT.compareAndSet(buffer, base + VERSION, version, claim)) {
+                    logger.warn("Reclaiming leg cache slot {} abandoned by a writer", slot);
+                    write(base, from, to, distanceKm, now, 2);
+                    return true;
+                }
+                continue;
+            }
+            boolean empty = version == 0;
+            if (!empty && ((long) LONG.get(buffer, base + FROM) != from || (long) LONG.get(buffer, base + TO) != to)) {
+                continue;
+            }
+            if (!INT.compareAndSet(buffer, base + VERSION, version, claim)) {
+                // Another writer claimed it; an empty slot may now hold our key, so look again
+                if (empty) {
+                    probe--;
+                    slot = (slot - 1) & mask;
+                }
+                continue;
+            }
+            // Skip 0 on wrap-around, it means empty
+            write(base, from, to, distanceKm, now, version + 2 == 0 ? 2 : version + 2);
+            return true;
+        }
+        return false;
+    }
+
+    // Fills a claimed slot and publishes it under the given even version
+    private void write(int base, long from, long to, float distanceKm, int minute, int version) {
+        LONG.set(buffer, base + FROM, from);
+        LONG.set(buffer, base + TO, to);
+        buffer.putFloat(base + DISTANCE, distanceKm);
+        buffer.putInt(base + WRITTEN_MINUTE, minute);
+        INT.setRelease(buffer, base + VERSION, version);
+    }
+
+    private long key(double lat, double lng) {
+        return ((long) (int) Math.round(lat * scale) << 32) | ((int) Math.round(lng * scale) & 0xFFFFFFFFL);
+    }
+
+    private int slotOf(long from, long to) {
+        long h = from * 0x9E3779B97F4A7C15L + to;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int offset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int currentMinute() {
+        return (int) (System.currentTimeMillis() / 60_000L);
+    }
+}
@@ -0,0 +1,171 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.algorithm.DistanceMatrix;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds road distance matrices from OSRM's /table service. OSRM limits how
+ * many coordinates one request may carry, so the N×N matrix is cut into tiles
+ * of source and destination blocks, fetched concurrently and written into one
+ * float array. Tiles whose legs are all in the {@link MappedLegCache} are
+ * filled from it without a request.
+ */
+class OsrmTableClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(OsrmTableClient.class);
+
+    // Cost used for pairs OSRM cannot route between
+    static final float UNREACHABLE_KM = 100_000f;
+
+    private final WebClient webClient;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    OsrmTableClient(WebClient webClient) {
+        this.webClient = webClient;
+    }
+
+    /**
+     * Fetches the matrix for the given points in kilometres.
+     *
+     * @param maxCoordinates OSRM's max-table-size, the coordinate limit of one request
+     * @param concurrency    tiles in flight at once
+     * @param legCache       legs learned earlier, or null
+     */
+    Mono<DistanceMatrix> fetchMatrix(String baseUrl, double[] lats, double[] lngs,
+                                     int maxCoordinates, int concurrency, MappedLegCache legCache) {
+        int size = lats.length;
+        // An off-diagonal tile carries a source block and a destination block
+        int block = Math.max(1, maxCoordinates / 2);
+        int blocks = (size + block - 1) / block;
+
+        List<int[]> tiles = new ArrayList<>(blocks * blocks);
+        for (int source = 0; source < blocks; source++) {
+            for (int destination = 0; destination < blocks; destination++) {
+                tiles.add(new int[]{source * block, Math.min(size, (source + 1) * block),
+                        destination * block, Math.min(size, (destination + 1) * block)});
+            }
+        }
+        logger.info("Fetching {}x{} distance matrix in {} tiles", size, size, tiles.size());
+
+        float[] costs = new float[size * size];
+        return Flux.fromIterable(tiles)
+                .filter(tile -> legCache == null || !fillFromCache(legCache, lats, lngs, tile, costs, size))
+                .flatMap(tile -> fetchTile(baseUrl, lats, lngs, tile)
+                        .doOnNext(distances -> {
+                            copyTile(distances, tile, costs, size);
+                            if (legCache != null) {
+                                storeInCache(legCache, distances, lats, lngs, tile);
+                            }
+                        }), Math.max(1, concurrency))
+                .then(Mono.fromSupplier(() -> new DistanceMatrix(size, costs, false)));
+    }
+
+    // Fills a tile from the cache when every leg of it is known
+    private static boolean fillFromCache(MappedLegCache legCache, double[] lats, double[] lngs,
+                                         int[] tile, float[] costs, int size) {
+        for (int i = tile[0]; i < tile[1]; i++) {
+            for (int j = tile[2]; j < tile[3]; j++) {
+                float distanceKm = i == j ? 0f : legCache.get(lats[i], lngs[i], lats[j], lngs[j]);
+                if (Float.isNaN(distanceKm)) {
+                    return false;
+                }
+                costs[i * size + j] = distanceKm;
+            }
+        }
+        return true;
+    }
+
+    private static void storeInCache(MappedLegCache legCache, List<List<Number>> distances,
+                                     double[] lats, double[] lngs, int[] tile) {
+        for (int i = tile[0]; i < tile[1]; i++) {
+            List<Number> row = distances.get(i - tile[0]);
+            for (int j = tile[2]; j < tile[3]; j++) {
+                Number metres = row.get(j - tile[2]);
+                if (i != j && metres != null) {
+                    legCache.put(lats[i], lngs[i], lats[j], lngs[j], metres.floatValue() / 1000f);
+                }
+            }
+        }
+    }
+
+    private Mono<List<List<Number>>> fetchTile(String baseUrl, double[] lats, double[] lngs, int[] tile) {
+        boolean diagonal = tile[0] == tile[2];
+        StringBuilder coordinates = new StringBuilder();
+        appendCoordinates(coordinates, lats, lngs, tile[0], tile[1]);
+        if (!diagonal) {
+            appendCoordinates(coordinates, lats, lngs, tile[2], tile[3]);
+        }
+
+        String url = String.format("%s/table/v1/driving/%s?annotations=distance", baseUrl, coordinates);
+        if (!diagonal) {
+            int sources = tile[1] - tile[0];
+            int destinations = tile[3] - tile[2];
+            url += "&sources=" + range(0, sources) + "&destinations=" + range(sources, sources + destinations);
+        }
+
+        String tableUrl = url;
+        return Mono.defer(() -> webClient.get()
+                        .uri(tableUrl)
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .timeout(Duration.ofSeconds(30)))
+                .map(this::parseTable);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<List<Number>> parseTable(String body) {
+        try {
+            Map<String, Object> response = objectMapper.readValue(body, Map.class);
+            if (!"Ok".equals(response.get("code"))) {
+                throw new RuntimeException("OSRM table request failed: " + response.get("code"));
+            }
+            List<List<Number>> distances = (List<List<Number>>) response.get("distances");
+            if (distances == null) {
+                throw new RuntimeException("OSRM table response has no distances");
+            }
+            return distances;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse OSRM table response: " + e.getMessage());
+        }
+    }
+
+    // Tiles cover disjoint cells, so concurrent writes never overlap
+    private static void copyTile(List<List<Number>> distances, int[] tile, float[] costs, int size) {
+        for (int i = tile[0]; i < tile[1]; i++) {
+            List<Number> row = distances.get(i - tile[0]);
+            for (int j = tile[2]; j < tile[3]; j++) {
+                Number metres = row.get(j - tile[2]);
+                costs[i * size + j] = metres != null ? metres.floatValue() / 1000f : UNREACHABLE_KM;
+            }
+        }
+    }
+
+    private static void appendCoordinates(StringBuilder coordinates, double[] lats, double[] lngs, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (coordinates.length() > 0) {
+                coordinates.append(';');
+            }
+            coordinates.append(String.format("%f,%f", lngs[i], lats[i]));
+        }
+    }
+
+    private static String range(int from, int to) {
+        StringBuilder indices = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            indices.append(i > from ? ";" : "").append(i);
+        }
+        return indices.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.barkosoft.router.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the route result cache's size, footprint and hit rate in /actuator/metrics.
+ */
+@Component
+public class RouteCacheMetrics {
+
+    @Autowired
+    private RouteService routeService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void registerMeters() {
+        RouteResultCache cache = routeService.getResultCache();
+        Gauge.builder("router.route.cache.size", cache, RouteResultCache::size)
+                .description("Batch results held in the route cache")
+                .register(meterRegistry);
+        Gauge.builder("router.route.cache.bytes", cache, RouteResultCache::retainedBytes)
+                .description("Estimated bytes of geometry and ordering held in the route cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        FunctionCounter.builder("router.route.cache.requests", cache, RouteResultCache::hits)
+                .description("Single-batch optimizations answered from the route cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("router.route.cache.requests", cache, RouteResultCache::misses)
+                .description("Single-batch optimizations that had to call OSRM")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("router.route.cache.evictions", cache, RouteResultCache::evictions)
+                .description("Route cache entries dropped for size or age")
+                .register(meterRegistry);
+    }
+}
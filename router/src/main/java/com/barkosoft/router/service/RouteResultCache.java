@@ -0,0 +1,209 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.RouteResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of single-batch results, so a batch submitted again with
+ * the same stops skips OSRM entirely. Keys are the start point plus the
+ * customer coordinates, rounded to a fixed number of decimals and sorted,
+ * so neither the input order nor the customer ids matter. Entries hold the
+ * visiting order as ranks in that sorted list and are mapped back to the
+ * ids of whichever request hits them. Geometry is kept as a flat array of
+ * lng/lat pairs and the cache is bounded by an estimate of the bytes it
+ * retains as well as by entry count.
+ */
+class RouteResultCache {
+
+    // Per-customer overhead of the order, mapping and key arrays, roughly
+    static final long CUSTOMER_BYTES = 64;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long retainedBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * A quantized, order-normalized batch. {@code sorted[r]} is the index, in
+     * the request's customer list, of the customer with rank r.
+     */
+    static final class Key {
+        private final long[] coordinates;
+        private final int hash;
+        private final int[] sorted;
+
+        private Key(long[] coordinates, int[] sorted) {
+            this.coordinates = coordinates;
+            this.hash = Arrays.hashCode(coordinates);
+            this.sorted = sorted;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key && hash == key.hash && Arrays.equals(coordinates, key.coordinates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private record Entry(int[] order, String totalDistance, double[] geometry,
+                         int[][] mapping, long createdAt) {
+
+        long bytes() {
+            return 8L * geometry.length + CUSTOMER_BYTES * order.length;
+        }
+    }
+
+    static Key key(double startLat, double startLng, List<Customer> customers, int decimals) {
+        double scale = Math.pow(10, decimals);
+        int n = customers.size();
+        long[] lats = new long[n];
+        long[] lngs = new long[n];
+        Integer[] ranks = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            lats[i] = Math.round(customers.get(i).getLatitude() * scale);
+            lngs[i] = Math.round(customers.get(i).getLongitude() * scale);
+            ranks[i] = i;
+        }
+        Arrays.sort(ranks, (a, b) -> lats[a] != lats[b] ? Long.compare(lats[a], lats[b]) : Long.compare(lngs[a], lngs[b]));
+
+        long[] coordinates = new long[2 * n + 2];
+        coordinates[0] = Math.round(startLat * scale);
+        coordinates[1] = Math.round(startLng * scale);
+        int[] sorted = new int[n];
+        for (int r = 0; r < n; r++) {
+            sorted[r] = ranks[r];
+            coordinates[2 * r + 2] = lats[ranks[r]];
+            coordinates[2 * r + 3] = lngs[ranks[r]];
+        }
+        return new Key(coordinates, sorted);
+    }
+
+    /**
+     * Returns the cached result for the request behind {@code key}, in terms of
+     * its {@code customers}, or null when absent or older than {@code ttlMillis}.
+     */
+    synchronized RouteResponse get(Key key, List<Customer> customers, long ttlMillis) {
+        Entry entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt() > ttlMillis) {
+            entries.remove(key);
+            retainedBytes -= entry.bytes();
+            evictions.incrementAndGet();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+
+        List<Long> ids = new ArrayList<>(entry.order().length);
+        Map<Long, int[]> mapping = entry.mapping() != null ? new HashMap<>() : null;
+        for (int k = 0; k < entry.order().length; k++) {
+            Long id = customers.get(key.sorted[entry.order()[k]]).getMyId();
+            ids.add(id);
+            if (mapping != null && entry.mapping()[k] != null) {
+                mapping.put(id, entry.mapping()[k].clone());
+            }
+        }
+        double[] flat = entry.geometry();
+        List<List<Double>> geometry = new ArrayList<>(flat.length / 2);
+        for (int p = 0; p < flat.length; p += 2) {
+            geometry.add(List.of(flat[p], flat[p + 1]));
+        }
+        return new RouteResponse(ids, entry.totalDistance(), geometry, mapping);
+    }
+
+    /**
+     * Caches a successful result, evicting expired entries first and then the
+     * least recently used ones to stay within {@code maxEntries} and
+     * {@code maxBytes}. Results larger than {@code maxBytes} on their own, or
+     * whose geometry is not plain lng/lat pairs, are not cached.
+     */
+    synchronized void put(Key key, List<Customer> customers, RouteResponse response, int maxEntries, long maxBytes,
+                          long ttlMillis) {
+        List<List<Double>> points = response.getRouteGeometry();
+        double[] geometry = new double[2 * points.size()];
+        for (int p = 0; p < points.size(); p++) {
+            List<Double> point = points.get(p);
+            if (point.size() != 2) {
+                return;
+            }
+            geometry[2 * p] = point.get(0);
+            geometry[2 * p + 1] = point.get(1);
+        }
+
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (int r = 0; r < key.sorted.length; r++) {
+            ranks.put(customers.get(key.sorted[r]).getMyId(), r);
+        }
+        List<Long> ids = response.getOptimizedCustomerIds();
+        int[] order = new int[ids.size()];
+        int[][] mapping = response.getCustomerGeometryMapping() != null ? new int[ids.size()][] : null;
+        for (int k = 0; k < ids.size(); k++) {
+            Integer rank = ranks.get(ids.get(k));
+            if (rank == null) {
+                return;
+            }
+            order[k] = rank;
+            if (mapping != null) {
+                int[] range = response.getCustomerGeometryMapping().get(ids.get(k));
+                mapping[k] = range != null ? range.clone() : null;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Entry added = new Entry(order, response.getTotalDistance(), geometry, mapping, now);
+        if (added.bytes() > maxBytes) {
+            return;
+        }
+        Entry replaced = entries.put(key, added);
+        retainedBytes += added.bytes() - (replaced != null ? replaced.bytes() : 0);
+
+        Iterator<Entry> oldest = entries.values().iterator();
+        while (oldest.hasNext()) {
+            Entry entry = oldest.next();
+            if (entries.size() > maxEntries || retainedBytes > maxBytes || now - entry.createdAt() > ttlMillis) {
+                oldest.remove();
+                retainedBytes -= entry.bytes();
+                evictions.incrementAndGet();
+            } else {
+                break;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long retainedBytes() {
+        return retainedBytes;
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    long evictions() {
+        return evictions.get();
+    }
+}
@@ -1,17 +1,34 @@
 package com.barkosoft.router.service;
 
+import com.barkosoft.router.algorithm.BatchingStrategies;
+import com.barkosoft.router.algorithm.CandidateGraph;
+import com.barkosoft.router.algorithm.CandidateGraphSolver;
+import com.barkosoft.router.algorithm.DistanceMatrix;
+import com.barkosoft.router.algorithm.GeoPoints;
+import com.barkosoft.router.algorithm.HeldKarpSolver;
+import com.barkosoft.router.algorithm.LocalSearchSolver;
+import com.barkosoft.router.algorithm.PortfolioSolver;
+import com.barkosoft.router.algorithm.SeamRepair;
 import com.barkosoft.router.dto.OSRMResponse;
 import com.barkosoft.router.dto.RouteResponse;
 import com.barkosoft.router.dto.Customer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,33 +37,253 @@ public class RouteService {
     private static final Logger logger = LoggerFactory.getLogger(RouteService.class);
     private static final int BATCH_SIZE = 50;
 
+    static final String TRIP_SOLVER = "trip";
+    static final String LOCAL_SOLVER = "local";
+    static final String OSRM_MATRIX = "osrm";
+
     @Value("${osrm.base.url:http://router.project-osrm.org}")
     private String osrmBaseUrl;
 
+    @Value("${routing.batching.strategy:bisection}")
+    private String batchingStrategy = BatchingStrategies.BISECTION;
+
+    @Value("${osrm.batch.concurrency:8}")
+    private int batchConcurrency = 8;
+
+    // trip delegates ordering to OSRM /trip, local solves in-process with LocalSearchSolver
+    @Value("${routing.solver:trip}")
+    private String solver = TRIP_SOLVER;
+
+    @Value("${routing.solver.time-budget-ms:200}")
+    private long solverTimeBudgetMs = 200;
+
+    // Most cores one local solve may use, and the default when a request asks for none;
+    // above 1 it runs a multi-start portfolio on the solver pool
+    @Value("${routing.solver.parallelism:1}")
+    private int solverParallelism = 1;
+
+    // Threads shared by every portfolio solve; 0 uses one per core
+    @Value("${routing.solver.pool-threads:0}")
+    private int solverPoolThreads = 0;
+
+    private ForkJoinPool solverPool;
+
+    // Batches this small are solved exactly with Held-Karp on a table matrix, whatever the solver
+    @Value("${routing.solver.exact-max-stops:12}")
+    private int exactMaxStops = 12;
+
+    // The local solver orders up to this many stops in one piece instead of batching
+    @Value("${routing.solver.max-stops:400}")
+    private int solverMaxStops = 400;
+
+    // Above max-stops, the local solver works on each stop's k nearest neighbours up to this many stops
+    @Value("${routing.solver.candidate-max-stops:20000}")
+    private int candidateMaxStops = 20000;
+
+    @Value("${routing.solver.candidates:10}")
+    private int solverCandidates = 10;
+
+    // osrm uses road distances from /table, haversine straight-line distances
+    @Value("${routing.solver.matrix:osrm}")
+    private String solverMatrix = OSRM_MATRIX;
+
+    // OSRM's max-table-size: coordinates allowed in one /table request
+    @Value("${osrm.table.max-size:100}")
+    private int tableMaxSize = 100;
+
+    @Value("${routing.seam-repair.enabled:true}")
+    private boolean seamRepairEnabled = true;
+
+    // Stops on either side of a batch seam that seam repair may reorder
+    @Value("${routing.seam-repair.window:6}")
+    private int seamRepairWindow = 6;
+
+    // Single-batch results keyed by rounded, sorted coordinates; routing.cache.max-entries 0 disables it
+    @Value("${routing.cache.max-entries:500}")
+    private int cacheMaxEntries = 500;
+
+    // Estimated bytes of geometry and ordering the cache may hold
+    @Value("${routing.cache.max-bytes:67108864}")
+    private long cacheMaxBytes = 67108864;
+
+    @Value("${routing.cache.ttl-hours:36}")
+    private long cacheTtlHours = 36;
+
+    // 5 decimals is about a metre
+    @Value("${routing.cache.precision:5}")
+    private int cachePrecision = 5;
+
+    private final RouteResultCache resultCache = new RouteResultCache();
+
+    // Memory-mapped leg cache shared across restarts and JVMs on the host; empty disables it
+    @Value("${routing.leg-cache.path:}")
+    private String legCachePath = "";
+
+    @Value("${routing.leg-cache.slots:1048576}")
+    private int legCacheSlots = 1 << 20;
+
+    @Value("${routing.leg-cache.ttl-hours:168}")
+    private long legCacheTtlHours = 168;
+
+    private MappedLegCache legCache;
+
     private final WebClient webClient;
+    private final OsrmTableClient tableClient;
     private final ObjectMapper objectMapper;
 
     public RouteService() {
-        this.webClient = WebClient.builder()
+        this(WebClient.builder()
                 .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
-                .build();
+                .build());
+    }
+
+    RouteService(WebClient webClient) {
+        this.webClient = webClient;
+        this.tableClient = new OsrmTableClient(webClient);
         this.objectMapper = new ObjectMapper();
     }
 
+    @PostConstruct
+    void openLegCache() {
+        if (legCachePath == null || legCachePath.isBlank()) {
+            return;
+        }
+        try {
+            legCache = MappedLegCache.open(Path.of(legCachePath), legCacheSlots, cachePrecision,
+                    Duration.ofHours(legCacheTtlHours).toMinutes());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Leg cache {} unavailable, matrices will come from OSRM only: {}", legCachePath, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdownSolverPool() {
+        if (solverPool != null) {
+            solverPool.shutdownNow();
+        }
+    }
+
+    // Created on first use so services built without Spring get one too
+    private synchronized ForkJoinPool solverPool() {
+        if (solverPool == null) {
+            int threads = solverPoolThreads > 0 ? solverPoolThreads : Runtime.getRuntime().availableProcessors();
+            solverPool = new ForkJoinPool(threads);
+        }
+        return solverPool;
+    }
+
     public RouteResponse optimizeRoute(Double startLat, Double startLng, List<Customer> customers) {
+        return optimizeRouteReactive(startLat, startLng, customers).block();
+    }
+
+    public Mono<RouteResponse> optimizeRouteReactive(Double startLat, Double startLng, List<Customer> customers) {
+        return optimizeRouteReactive(startLat, startLng, customers, null);
+    }
+
+    /**
+     * Same as {@link #optimizeRouteReactive(Double, Double, List)} with a batching
+     * strategy for this request; null uses {@code routing.batching.strategy}.
+     */
+    public Mono<RouteResponse> optimizeRouteReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                     String strategy) {
+        return optimizeRouteReactive(startLat, startLng, customers, strategy, null);
+    }
+
+    /**
+     * Same as {@link #optimizeRouteReactive(Double, Double, List, String)} with the
+     * cores each local solve of this request may use, capped by
+     * {@code routing.solver.parallelism}; null uses the configured value.
+     */
+    public Mono<RouteResponse> optimizeRouteReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                     String strategy, Integer parallelism) {
+        int workers = solverWorkers(parallelism);
         if (customers.isEmpty()) {
             logger.warn("No customers provided in request");
-            return new RouteResponse(new ArrayList<>(), "0,000 km", null, null);
+            return Mono.just(new RouteResponse(new ArrayList<>(), "0,000 km", null, null));
         }
 
-        if (customers.size() <= BATCH_SIZE) {
-            return optimizeSingleBatch(startLat, startLng, customers);
+        boolean local = LOCAL_SOLVER.equalsIgnoreCase(solver);
+        int singleBatchLimit = local ? Math.max(BATCH_SIZE, solverMaxStops) : BATCH_SIZE;
+        if (customers.size() <= singleBatchLimit) {
+            return optimizeSingleBatchReactive(startLat, startLng, customers, workers);
         }
+        if (local && customers.size() <= candidateMaxStops) {
+            return optimizeOnCandidateGraphReactive(startLat, startLng, customers, singleBatchLimit);
+        }
+
+        return optimizeWithBatching(startLat, startLng, customers, strategy != null ? strategy : batchingStrategy,
+                workers);
+    }
 
-        return optimizeWithBatching(startLat, startLng, customers);
+    /**
+     * Whether a route of this many stops is ordered in one piece by the local
+     * solver, either directly or on the candidate graph. Callers keep such
+     * routes off Kafka, which would cut them into batches.
+     */
+    public boolean solvesInOnePiece(int customerCount) {
+        int limit = Math.max(Math.max(BATCH_SIZE, solverMaxStops), candidateMaxStops);
+        return LOCAL_SOLVER.equalsIgnoreCase(solver) && customerCount <= limit;
+    }
+
+    private int solverWorkers(Integer requested) {
+        int limit = Math.max(1, solverParallelism);
+        return requested != null ? Math.max(1, Math.min(requested, limit)) : limit;
     }
 
     public RouteResponse optimizeSingleBatch(Double startLat, Double startLng, List<Customer> customers) {
+        return optimizeSingleBatch(startLat, startLng, customers, null);
+    }
+
+    public RouteResponse optimizeSingleBatch(Double startLat, Double startLng, List<Customer> customers,
+                                             Integer parallelism) {
+        return optimizeSingleBatchReactive(startLat, startLng, customers, parallelism).block();
+    }
+
+    public Mono<RouteResponse> optimizeSingleBatchReactive(Double startLat, Double startLng, List<Customer> customers) {
+        return optimizeSingleBatchReactive(startLat, startLng, customers, (Integer) null);
+    }
+
+    /**
+     * Single batch with the cores its local solve may use, capped by
+     * {@code routing.solver.parallelism}; null uses the configured value.
+     */
+    public Mono<RouteResponse> optimizeSingleBatchReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                           Integer parallelism) {
+        return optimizeSingleBatchReactive(startLat, startLng, customers, solverWorkers(parallelism));
+    }
+
+    private Mono<RouteResponse> optimizeSingleBatchReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                            int workers) {
+        if (cacheMaxEntries <= 0 || customers.isEmpty()) {
+            return solveSingleBatchReactive(startLat, startLng, customers, workers);
+        }
+
+        long ttlMillis = Duration.ofHours(cacheTtlHours).toMillis();
+        RouteResultCache.Key key = RouteResultCache.key(startLat, startLng, customers, cachePrecision);
+        RouteResponse cached = resultCache.get(key, customers, ttlMillis);
+        if (cached != null) {
+            logger.info("Route cache hit for {} customers", customers.size());
+            return Mono.just(cached);
+        }
+        return solveSingleBatchReactive(startLat, startLng, customers, workers)
+                .doOnNext(response -> {
+                    // Results without geometry came from a degraded OSRM call and are not worth keeping
+                    if (response.getRouteGeometry() != null) {
+                        resultCache.put(key, customers, response, cacheMaxEntries, cacheMaxBytes, ttlMillis);
+                    }
+                });
+    }
+
+    RouteResultCache getResultCache() {
+        return resultCache;
+    }
+
+    private Mono<RouteResponse> solveSingleBatchReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                         int workers) {
+        if (LOCAL_SOLVER.equalsIgnoreCase(solver) || isExactlySolvable(customers)) {
+            return optimizeLocallyReactive(startLat, startLng, customers, workers);
+        }
+
         StringBuilder coordinates = new StringBuilder();
         coordinates.append(String.format("%f,%f", startLng, startLat));
 
@@ -54,210 +291,477 @@ public class RouteService {
             coordinates.append(";").append(String.format("%f,%f", customer.getLongitude(), customer.getLatitude()));
         }
 
-        try {
-            String tripUrl = String.format("%s/trip/v1/driving/%s?source=first&roundtrip=false",
-                    osrmBaseUrl, coordinates.toString());
+        String tripUrl = String.format("%s/trip/v1/driving/%s?source=first&roundtrip=false",
+                osrmBaseUrl, coordinates.toString());
+
+        return Mono.defer(() -> {
+                    logger.info("Making OSRM Trip request for {} customers", customers.size());
+                    return webClient.get()
+                            .uri(tripUrl)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofSeconds(60));
+                })
+                .map(tripResponse -> parseOptimizedRouteFromResponse(tripResponse, customers))
+                .flatMap(optimizedRoute -> fetchRouteGeometryWithMapping(
+                        startLat, startLng, customers, optimizedRoute.getOptimizedCustomerIds())
+                        .map(geometryResult -> new RouteResponse(
+                                optimizedRoute.getOptimizedCustomerIds(),
+                                optimizedRoute.getTotalDistance(),
+                                geometryResult.geometry,
+                                geometryResult.customerMapping
+                        )))
+                .onErrorMap(e -> {
+                    logger.error("OSRM API call failed for {} customers: {}", customers.size(), e.getMessage());
+                    return new RuntimeException("Route optimization failed: " + e.getMessage());
+                });
+    }
 
-            logger.info("Making OSRM Trip request for {} customers", customers.size());
+    private boolean isExactlySolvable(List<Customer> customers) {
+        return customers.size() <= Math.min(exactMaxStops, HeldKarpSolver.MAX_STOPS);
+    }
 
-            String tripResponse = webClient.get()
-                    .uri(tripUrl)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(60))
-                    .block();
+    /**
+     * Orders the stops in-process instead of OSRM /trip, on a /table road matrix
+     * or straight-line distances: exactly with {@link HeldKarpSolver} for small
+     * batches, otherwise with {@link LocalSearchSolver} or, given more than one
+     * core, {@link PortfolioSolver} on a dedicated fork-join pool. The portfolio
+     * waits on its tasks, so it runs on the bounded elastic scheduler rather than
+     * a parallel worker.
+     * The reported distance is the road distance of the final /route when OSRM
+     * returns one.
+     */
+    private Mono<RouteResponse> optimizeLocallyReactive(Double startLat, Double startLng, List<Customer> customers,
+                                                        int workers) {
+        boolean exact = isExactlySolvable(customers);
+        return distanceMatrix(startLat, startLng, customers)
+                .flatMap(matrix -> Mono.fromCallable(() -> {
+                            int[] order = exact
+                                    ? HeldKarpSolver.solve(matrix)
+                                    : PortfolioSolver.solve(matrix, Duration.ofMillis(solverTimeBudgetMs),
+                                            workers, solverPool());
+                            List<Long> optimizedIds = new ArrayList<>(order.length);
+                            for (int node : order) {
+                                optimizedIds.add(customers.get(node - 1).getMyId());
+                            }
+                            logger.info("Solved {} customers locally", customers.size());
+                            return new RouteResponse(optimizedIds, formatDistanceKm(matrix.pathCost(order)));
+                        })
+                        .subscribeOn(exact || workers <= 1 ? Schedulers.parallel() : Schedulers.boundedElastic()))
+                .flatMap(optimizedRoute -> fetchRouteGeometryWithMapping(
+                        startLat, startLng, customers, optimizedRoute.getOptimizedCustomerIds())
+                        .map(geometryResult -> new RouteResponse(
+                                optimizedRoute.getOptimizedCustomerIds(),
+                                geometryResult.distanceKm != null
+                                        ? formatDistanceKm(geometryResult.distanceKm)
+                                        : optimizedRoute.getTotalDistance(),
+                                geometryResult.geometry,
+                                geometryResult.customerMapping
+                        )))
+                .onErrorMap(e -> {
+                    logger.error("Local optimization failed for {} customers: {}", customers.size(), e.getMessage());
+                    return new RuntimeException("Route optimization failed: " + e.getMessage());
+                });
+    }
 
-            RouteResponse optimizedRoute = parseOptimizedRouteFromResponse(tripResponse, customers);
+    /**
+     * Solves the whole route in one piece on a sparse {@link CandidateGraph}, for
+     * local solves too large for a full matrix. Only the geometry is fetched in
+     * pieces of at most {@code pieceSize} stops, each starting where the previous
+     * one ended, and stitched like batches.
+     */
+    private Mono<RouteResponse> optimizeOnCandidateGraphReactive(Double startLat, Double startLng,
+                                                                 List<Customer> customers, int pieceSize) {
+        return Mono.fromCallable(() -> {
+                    CandidateGraph graph = CandidateGraph.haversine(startLat, startLng, customers, solverCandidates);
+                    int[] order = CandidateGraphSolver.solve(graph, Duration.ofMillis(solverTimeBudgetMs));
+                    List<Customer> ordered = new ArrayList<>(order.length);
+                    for (int node : order) {
+                        ordered.add(customers.get(node - 1));
+                    }
+                    logger.info("Solved {} customers locally on a {}-nearest candidate graph", customers.size(), graph.k());
+                    return ordered;
+                })
+                .subscribeOn(Schedulers.parallel())
+                .flatMap(ordered -> {
+                    int pieces = (ordered.size() + pieceSize - 1) / pieceSize;
+                    return Flux.range(0, pieces)
+                            .flatMapSequential(i -> {
+                                List<Customer> stops = ordered.subList(i * pieceSize,
+                                        Math.min(ordered.size(), (i + 1) * pieceSize));
+                                Double fromLat = i == 0 ? startLat : ordered.get(i * pieceSize - 1).getLatitude();
+                                Double fromLng = i == 0 ? startLng : ordered.get(i * pieceSize - 1).getLongitude();
+                                List<Long> stopIds = stops.stream().map(Customer::getMyId).collect(Collectors.toList());
+                                return fetchRouteGeometryWithMapping(fromLat, fromLng, stops, stopIds)
+                                        .map(geometryResult -> new RouteResponse(
+                                                stopIds,
+                                                formatDistanceKm(geometryResult.distanceKm != null
+                                                        ? geometryResult.distanceKm
+                                                        : straightLineKm(fromLat, fromLng, stops)),
+                                                geometryResult.geometry,
+                                                geometryResult.customerMapping
+                                        ));
+                            }, Math.max(1, batchConcurrency))
+                            .collectList()
+                            .map(this::combineBatchResponses);
+                })
+                .onErrorMap(e -> {
+                    logger.error("Local optimization failed for {} customers: {}", customers.size(), e.getMessage());
+                    return new RuntimeException("Route optimization failed: " + e.getMessage());
+                });
+    }
 
-            RouteGeometryResult geometryResult = fetchRouteGeometryWithMapping(
-                    startLat, startLng, customers, optimizedRoute.getOptimizedCustomerIds()
-            );
+    private static double straightLineKm(double fromLat, double fromLng, List<Customer> stops) {
+        double total = 0.0;
+        for (Customer stop : stops) {
+            total += GeoPoints.haversineKm(fromLat, fromLng, stop.getLatitude(), stop.getLongitude());
+            fromLat = stop.getLatitude();
+            fromLng = stop.getLongitude();
+        }
+        return total;
+    }
 
-            return new RouteResponse(
-                    optimizedRoute.getOptimizedCustomerIds(),
-                    optimizedRoute.getTotalDistance(),
-                    geometryResult != null ? geometryResult.geometry : null,
-                    geometryResult != null ? geometryResult.customerMapping : null
-            );
+    private Mono<DistanceMatrix> distanceMatrix(Double startLat, Double startLng, List<Customer> customers) {
+        Mono<DistanceMatrix> haversine = Mono.fromCallable(() -> DistanceMatrix.haversine(startLat, startLng, customers));
+        if (!OSRM_MATRIX.equalsIgnoreCase(solverMatrix)) {
+            return haversine;
+        }
 
-        } catch (Exception e) {
-            logger.error("OSRM API call failed for {} customers: {}", customers.size(), e.getMessage());
-            throw new RuntimeException("Route optimization failed: " + e.getMessage());
+        double[] lats = new double[customers.size() + 1];
+        double[] lngs = new double[customers.size() + 1];
+        lats[0] = startLat;
+        lngs[0] = startLng;
+        for (int i = 0; i < customers.size(); i++) {
+            lats[i + 1] = customers.get(i).getLatitude();
+            lngs[i + 1] = customers.get(i).getLongitude();
         }
+        return tableClient.fetchMatrix(osrmBaseUrl, lats, lngs, tableMaxSize, batchConcurrency, legCache)
+                .onErrorResume(e -> {
+                    logger.warn("OSRM table request failed, solving on straight-line distances: {}", e.getMessage());
+                    return haversine;
+                });
     }
 
-    private RouteResponse optimizeWithBatching(Double startLat, Double startLng, List<Customer> customers) {
-        logger.info("Processing {} customers with Haversine pre-sorting and batching", customers.size());
+    private Mono<RouteResponse> optimizeWithBatching(Double startLat, Double startLng, List<Customer> customers,
+                                                     String strategy, int workers) {
+        logger.info("Processing {} customers with {} batching", customers.size(), strategy);
+
+        // Batches come back in visiting order, each ending where the next one starts
+        List<List<Customer>> batches = BatchingStrategies.forName(strategy)
+                .createBatches(startLat, startLng, customers, BATCH_SIZE);
+
+        // Batch starts come from the presorted list, so batches can run concurrently;
+        // flatMapSequential keeps the results in batch order for stitching
+        return Flux.range(0, batches.size())
+                .flatMapSequential(i -> {
+                    List<Customer> batch = batches.get(i);
+
+                    // Use last customer of the previous batch as the start
+                    Double batchStartLat = startLat;
+                    Double batchStartLng = startLng;
+                    if (i > 0) {
+                        List<Customer> previousBatch = batches.get(i - 1);
+                        Customer lastCustomer = previousBatch.get(previousBatch.size() - 1);
+                        batchStartLat = lastCustomer.getLatitude();
+                        batchStartLng = lastCustomer.getLongitude();
+                    }
 
-        // Sort customers using nearest neighbor before batching
-        List<Customer> sortedCustomers = sortCustomersByNearestNeighbor(startLat, startLng, customers);
+                    logger.info("Processing batch {} with {} customers", i + 1, batch.size());
+                    return optimizeSingleBatchReactive(batchStartLat, batchStartLng, batch, workers)
+                            .onErrorResume(e -> {
+                                logger.error("Failed to optimize batch {}: {}", i + 1, e.getMessage());
+                                RouteResponse fallback = new RouteResponse();
+                                fallback.setOptimizedCustomerIds(batch.stream().map(Customer::getMyId).collect(Collectors.toList()));
+                                fallback.setTotalDistance("0,000 km");
+                                fallback.setStatus("error: " + e.getMessage());
+                                return Mono.just(fallback);
+                            });
+                }, Math.max(1, batchConcurrency))
+                .collectList()
+                .flatMap(batchResponses -> {
+                    RouteResponse combined = combineBatchResponses(batchResponses);
+                    for (RouteResponse batchResponse : batchResponses) {
+                        if (batchResponse.getStatus() != null && batchResponse.getStatus().startsWith("error")) {
+                            return Mono.just(combined);
+                        }
+                    }
+                    int[] batchSizes = batchResponses.stream()
+                            .mapToInt(batchResponse -> batchResponse.getOptimizedCustomerIds().size()).toArray();
+                    return repairSeams(startLat, startLng, customers, batchSizes, combined);
+                });
+    }
 
-        // Create batches from sorted list
-        List<List<Customer>> batches = createSimpleBatches(sortedCustomers, BATCH_SIZE);
+    private RouteResponse combineBatchResponses(List<RouteResponse> batchResponses) {
         List<Long> allOptimizedIds = new ArrayList<>();
         List<List<Double>> combinedGeometry = new ArrayList<>();
+        Map<Long, int[]> combinedMapping = new HashMap<>();
         double totalDistance = 0.0;
 
-        Double lastLat = startLat;
-        Double lastLng = startLng;
-
-        for (int i = 0; i < batches.size(); i++) {
-            List<Customer> batch = batches.get(i);
-            logger.info("Processing batch {} with {} customers", i + 1, batch.size());
-
-            try {
-                RouteResponse batchResponse = optimizeSingleBatch(lastLat, lastLng, batch);
-                allOptimizedIds.addAll(batchResponse.getOptimizedCustomerIds());
-
-                if (batchResponse.getRouteGeometry() != null) {
-                    if (i == 0) {
-                        combinedGeometry.addAll(batchResponse.getRouteGeometry());
-                    } else if (batchResponse.getRouteGeometry().size() > 1) {
-                        combinedGeometry.addAll(batchResponse.getRouteGeometry().subList(1, batchResponse.getRouteGeometry().size()));
-                    }
-                }
+        for (int i = 0; i < batchResponses.size(); i++) {
+            RouteResponse batchResponse = batchResponses.get(i);
+            allOptimizedIds.addAll(batchResponse.getOptimizedCustomerIds());
 
-                String distanceStr = batchResponse.getTotalDistance().replace(" km", "").replace(",", ".");
-                totalDistance += Double.parseDouble(distanceStr);
+            // Failed batches only contribute their customer IDs
+            if (batchResponse.getStatus() != null && batchResponse.getStatus().startsWith("error")) {
+                continue;
+            }
 
-                // Use last customer from sorted list for next batch start
-                if (i < batches.size() - 1) {
-                    Customer lastCustomer = batch.get(batch.size() - 1);
-                    lastLat = lastCustomer.getLatitude();
-                    lastLng = lastCustomer.getLongitude();
+            int geometryOffset = combinedGeometry.size();
+            boolean skipFirst = false;
+            if (batchResponse.getRouteGeometry() != null) {
+                if (i == 0) {
+                    combinedGeometry.addAll(batchResponse.getRouteGeometry());
+                } else if (batchResponse.getRouteGeometry().size() > 1) {
+                    combinedGeometry.addAll(batchResponse.getRouteGeometry().subList(1, batchResponse.getRouteGeometry().size()));
+                    skipFirst = true;
                 }
+            }
 
-            } catch (Exception e) {
-                logger.error("Failed to optimize batch {}: {}", i + 1, e.getMessage());
-                allOptimizedIds.addAll(batch.stream().map(Customer::getMyId).collect(Collectors.toList()));
+            // Shift customer mapping by the geometry already stitched
+            if (batchResponse.getCustomerGeometryMapping() != null) {
+                for (Map.Entry<Long, int[]> entry : batchResponse.getCustomerGeometryMapping().entrySet()) {
+                    int shift = skipFirst ? geometryOffset - 1 : geometryOffset;
+                    combinedMapping.put(entry.getKey(), new int[]{
+                            Math.max(0, entry.getValue()[0] + shift), Math.max(0, entry.getValue()[1] + shift)});
+                }
             }
+
+            totalDistance += parseDistanceKm(batchResponse.getTotalDistance());
         }
 
         return new RouteResponse(
                 allOptimizedIds,
-                String.format("%.3f km", totalDistance).replace(".", ","),
+                formatDistanceKm(totalDistance),
                 combinedGeometry.isEmpty() ? null : combinedGeometry,
-                null
+                combinedMapping.isEmpty() ? null : combinedMapping
         );
     }
 
-    private List<Customer> sortCustomersByNearestNeighbor(Double startLat, Double startLng, List<Customer> customers) {
-        if (customers.isEmpty()) {
-            return new ArrayList<>();
+    /**
+     * Seam repair for a route stitched from Kafka batch results. batches are the
+     * batches the route was sent out in, in visiting order; routes with a failed
+     * batch are returned unchanged.
+     */
+    public Mono<RouteResponse> repairStitchedRoute(Double startLat, Double startLng,
+                                                   List<List<Customer>> batches, RouteResponse stitched) {
+        List<Customer> customers = new ArrayList<>();
+        int[] batchSizes = new int[batches.size()];
+        for (int i = 0; i < batches.size(); i++) {
+            customers.addAll(batches.get(i));
+            batchSizes[i] = batches.get(i).size();
+        }
+        return repairSeams(startLat, startLng, customers, batchSizes, stitched);
+    }
+
+    /**
+     * Reorders the stops around each batch seam with a windowed 2-opt/Or-opt on
+     * straight-line distance. A window is only kept when OSRM confirms it is
+     * shorter, and only that window's slice of the geometry is re-fetched.
+     */
+    private Mono<RouteResponse> repairSeams(Double startLat, Double startLng, List<Customer> customers,
+                                            int[] batchSizes, RouteResponse combined) {
+        if (!seamRepairEnabled || seamRepairWindow < 1 || batchSizes.length < 2
+                || combined.getRouteGeometry() == null || combined.getCustomerGeometryMapping() == null) {
+            return Mono.just(combined);
         }
 
-        List<Customer> remaining = new ArrayList<>(customers);
-        List<Customer> sorted = new ArrayList<>();
+        Map<Long, Customer> customerMap = customers.stream()
+                .collect(Collectors.toMap(Customer::getMyId, c -> c));
+        List<Long> ids = combined.getOptimizedCustomerIds();
+        // Seams sit at the batch boundaries, so every batch must be in the route
+        if (ids.size() != Arrays.stream(batchSizes).sum()) {
+            return Mono.just(combined);
+        }
 
-        Double currentLat = startLat;
-        Double currentLng = startLng;
+        // Path position 0 is the start, position p is the p-th stop
+        double[] lats = new double[ids.size() + 1];
+        double[] lngs = new double[ids.size() + 1];
+        lats[0] = startLat;
+        lngs[0] = startLng;
+        for (int p = 1; p <= ids.size(); p++) {
+            Customer customer = customerMap.get(ids.get(p - 1));
+            if (customer == null) {
+                return Mono.just(combined);
+            }
+            lats[p] = customer.getLatitude();
+            lngs[p] = customer.getLongitude();
+        }
 
-        while (!remaining.isEmpty()) {
-            Customer nearest = findNearestCustomer(currentLat, currentLng, remaining);
-            sorted.add(nearest);
-            remaining.remove(nearest);
-            currentLat = nearest.getLatitude();
-            currentLng = nearest.getLongitude();
+        int[] seams = new int[batchSizes.length - 1];
+        int position = 1;
+        for (int i = 0; i < seams.length; i++) {
+            position += batchSizes[i];
+            seams[i] = position;
         }
 
-        logger.info("Sorted {} customers using nearest neighbor algorithm", sorted.size());
-        return sorted;
+        List<SeamRepair.Window> windows = new SeamRepair(lats, lngs).repair(seams, seamRepairWindow);
+        if (windows.isEmpty()) {
+            return Mono.just(combined);
+        }
+        logger.info("Checking {} repaired seam windows with OSRM", windows.size());
+
+        return Flux.fromIterable(windows)
+                .flatMapSequential(window -> {
+                    List<Long> oldIds = new ArrayList<>(ids.subList(window.from() - 1, window.to()));
+                    List<Long> newIds = new ArrayList<>(window.order().length + 1);
+                    for (int p : window.order()) {
+                        newIds.add(ids.get(p - 1));
+                    }
+                    // The stop after the window stays put, but the leg into it changes
+                    if (window.to() < ids.size()) {
+                        oldIds.add(ids.get(window.to()));
+                        newIds.add(ids.get(window.to()));
+                    }
+                    double anchorLat = lats[window.from() - 1];
+                    double anchorLng = lngs[window.from() - 1];
+                    return Mono.zip(
+                                    fetchRouteGeometryWithMapping(anchorLat, anchorLng, customers, oldIds),
+                                    fetchRouteGeometryWithMapping(anchorLat, anchorLng, customers, newIds))
+                            .map(results -> new SeamPatch(oldIds, newIds, results.getT1(), results.getT2()));
+                }, Math.max(1, batchConcurrency))
+                .collectList()
+                .map(patches -> applySeamPatches(combined, patches));
     }
 
-    private Customer findNearestCustomer(Double lat, Double lng, List<Customer> customers) {
-        Customer nearest = null;
-        double minDistance = Double.MAX_VALUE;
+    private record SeamPatch(List<Long> oldIds, List<Long> newIds,
+                             RouteGeometryResult oldRoute, RouteGeometryResult newRoute) {
 
-        for (Customer customer : customers) {
-            double distance = calculateHaversineDistance(lat, lng,
-                    customer.getLatitude(),
-                    customer.getLongitude());
-            if (distance < minDistance) {
-                minDistance = distance;
-                nearest = customer;
-            }
+        boolean isImprovement() {
+            return oldRoute.distanceKm != null && newRoute.distanceKm != null
+                    && newRoute.distanceKm < oldRoute.distanceKm
+                    && newRoute.geometry != null && newRoute.customerMapping != null
+                    && newRoute.customerMapping.keySet().containsAll(newIds);
         }
-
-        return nearest;
     }
 
-    private double calculateHaversineDistance(Double lat1, Double lng1, Double lat2, Double lng2) {
-        final double R = 6371.0; // Earth radius in kilometers
+    // Patches are in route order and cover disjoint stretches of stops
+    private RouteResponse applySeamPatches(RouteResponse combined, List<SeamPatch> patches) {
+        List<Long> ids = new ArrayList<>(combined.getOptimizedCustomerIds());
+        List<List<Double>> geometry = new ArrayList<>(combined.getRouteGeometry());
+        Map<Long, int[]> mapping = new HashMap<>(combined.getCustomerGeometryMapping());
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            positions.put(ids.get(i), i);
+        }
 
-        double dLat = Math.toRadians(lat2 - lat1);
-        double dLng = Math.toRadians(lng2 - lng1);
+        double savedKm = 0.0;
+        int applied = 0;
+        for (SeamPatch patch : patches) {
+            if (!patch.isImprovement()) {
+                continue;
+            }
+            int[] first = mapping.get(patch.oldIds().get(0));
+            int[] last = mapping.get(patch.oldIds().get(patch.oldIds().size() - 1));
+            if (first == null || last == null || first[0] > last[1] || last[1] >= geometry.size()) {
+                continue;
+            }
 
-        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
-                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
-                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+            // Swap the window's slice of the geometry for the re-fetched one
+            int geometryStart = first[0];
+            List<List<Double>> slice = geometry.subList(geometryStart, last[1] + 1);
+            int shift = patch.newRoute().geometry.size() - slice.size();
+            slice.clear();
+            geometry.addAll(geometryStart, patch.newRoute().geometry);
+
+            int firstIndex = positions.get(patch.oldIds().get(0));
+            int lastIndex = firstIndex + patch.oldIds().size() - 1;
+            for (int i = lastIndex + 1; i < ids.size(); i++) {
+                int[] range = mapping.get(ids.get(i));
+                if (range != null) {
+                    mapping.put(ids.get(i), new int[]{range[0] + shift, range[1] + shift});
+                }
+            }
+            for (int k = 0; k < patch.newIds().size(); k++) {
+                Long id = patch.newIds().get(k);
+                int[] range = patch.newRoute().customerMapping.get(id);
+                mapping.put(id, new int[]{range[0] + geometryStart, range[1] + geometryStart});
+                ids.set(firstIndex + k, id);
+                positions.put(id, firstIndex + k);
+            }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+            savedKm += patch.oldRoute().distanceKm - patch.newRoute().distanceKm;
+            applied++;
+        }
 
-        return R * c;
+        if (applied == 0) {
+            return combined;
+        }
+        logger.info("Seam repair applied to {} windows, saving {} km", applied, String.format("%.3f", savedKm));
+        return new RouteResponse(ids,
+                formatDistanceKm(Math.max(0.0, parseDistanceKm(combined.getTotalDistance()) - savedKm)),
+                geometry, mapping);
     }
 
-    private List<List<Customer>> createSimpleBatches(List<Customer> customers, int maxBatchSize) {
-        List<List<Customer>> batches = new ArrayList<>();
-
-        for (int i = 0; i < customers.size(); i += maxBatchSize) {
-            int endIndex = Math.min(i + maxBatchSize, customers.size());
-            batches.add(new ArrayList<>(customers.subList(i, endIndex)));
-        }
+    private static double parseDistanceKm(String distance) {
+        return Double.parseDouble(distance.replace(" km", "").replace(",", "."));
+    }
 
-        return batches;
+    private static String formatDistanceKm(double distanceKm) {
+        return String.format("%.3f km", distanceKm).replace(".", ",");
     }
 
     private static class RouteGeometryResult {
+        static final RouteGeometryResult EMPTY = new RouteGeometryResult(null, null, null);
+
         List<List<Double>> geometry;
         Map<Long, int[]> customerMapping;
+        Double distanceKm;
 
-        RouteGeometryResult(List<List<Double>> geometry, Map<Long, int[]> customerMapping) {
+        RouteGeometryResult(List<List<Double>> geometry, Map<Long, int[]> customerMapping, Double distanceKm) {
             this.geometry = geometry;
             this.customerMapping = customerMapping;
+            this.distanceKm = distanceKm;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private RouteGeometryResult fetchRouteGeometryWithMapping(Double startLat, Double startLng,
-                                                              List<Customer> customers,
-                                                              List<Long> optimizedCustomerIds) {
-        try {
-            Map<Long, Customer> customerMap = customers.stream()
-                    .collect(Collectors.toMap(Customer::getMyId, c -> c));
+    private Mono<RouteGeometryResult> fetchRouteGeometryWithMapping(Double startLat, Double startLng,
+                                                                    List<Customer> customers,
+                                                                    List<Long> optimizedCustomerIds) {
+        Map<Long, Customer> customerMap = customers.stream()
+                .collect(Collectors.toMap(Customer::getMyId, c -> c));
 
-            StringBuilder orderedCoordinates = new StringBuilder();
-            orderedCoordinates.append(String.format("%f,%f", startLng, startLat));
+        StringBuilder orderedCoordinates = new StringBuilder();
+        orderedCoordinates.append(String.format("%f,%f", startLng, startLat));
 
-            for (Long customerId : optimizedCustomerIds) {
-                Customer customer = customerMap.get(customerId);
-                if (customer != null) {
-                    orderedCoordinates.append(";")
-                            .append(String.format("%f,%f", customer.getLongitude(), customer.getLatitude()));
-                }
+        for (Long customerId : optimizedCustomerIds) {
+            Customer customer = customerMap.get(customerId);
+            if (customer != null) {
+                orderedCoordinates.append(";")
+                        .append(String.format("%f,%f", customer.getLongitude(), customer.getLatitude()));
             }
+        }
 
-            String routeUrl = String.format("%s/route/v1/driving/%s?geometries=geojson&overview=full&annotations=true",
-                    osrmBaseUrl, orderedCoordinates.toString());
-
-            logger.info("Fetching route geometry with mapping for {} customers", optimizedCustomerIds.size());
-
-            String routeResponse = webClient.get()
-                    .uri(routeUrl)
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .timeout(Duration.ofSeconds(30))
-                    .block();
+        String routeUrl = String.format("%s/route/v1/driving/%s?geometries=geojson&overview=full&annotations=true",
+                osrmBaseUrl, orderedCoordinates.toString());
+
+        return Mono.defer(() -> {
+                    logger.info("Fetching route geometry with mapping for {} customers", optimizedCustomerIds.size());
+                    return webClient.get()
+                            .uri(routeUrl)
+                            .retrieve()
+                            .bodyToMono(String.class)
+                            .timeout(Duration.ofSeconds(30));
+                })
+                .map(routeResponse -> parseRouteGeometryWithMapping(routeResponse, optimizedCustomerIds))
+                .onErrorResume(e -> {
+                    logger.error("Failed to fetch route geometry with mapping: {}", e.getMessage(), e);
+                    return Mono.just(RouteGeometryResult.EMPTY);
+                });
+    }
 
+    @SuppressWarnings("unchecked")
+    private RouteGeometryResult parseRouteGeometryWithMapping(String routeResponse, List<Long> optimizedCustomerIds) {
+        try {
             Map<String, Object> response = objectMapper.readValue(routeResponse, Map.class);
             if (!"Ok".equals(response.get("code"))) {
                 logger.warn("OSRM returned non-OK status: {}", response.get("code"));
-                return null;
+                return RouteGeometryResult.EMPTY;
             }
 
             List<Map<String, Object>> routes = (List<Map<String, Object>>) response.get("routes");
             if (routes == null || routes.isEmpty()) {
                 logger.warn("No routes found in response");
-                return null;
+                return RouteGeometryResult.EMPTY;
             }
 
             Map<String, Object> route = routes.get(0);
@@ -312,11 +816,13 @@ public class RouteService {
             }
 
             logger.info("Created geometry mapping for {} customers", customerMapping.size());
-            return new RouteGeometryResult(coordinates, customerMapping.isEmpty() ? null : customerMapping);
+            Double distanceKm = route.get("distance") instanceof Number distance
+                    ? distance.doubleValue() / 1000.0 : null;
+            return new RouteGeometryResult(coordinates, customerMapping.isEmpty() ? null : customerMapping, distanceKm);
 
         } catch (Exception e) {
-            logger.error("Failed to fetch route geometry with mapping: {}", e.getMessage(), e);
-            return null;
+            logger.error("Failed to parse route geometry with mapping: {}", e.getMessage(), e);
+            return RouteGeometryResult.EMPTY;
         }
     }
 
@@ -0,0 +1,150 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingStrategyTest {
+
+    @Test
+    void shouldCoverEveryCustomerOnceWithinBatchSize() {
+        List<Customer> customers = createRandomCustomers(1000);
+
+        for (String name : List.of(BatchingStrategies.BISECTION, BatchingStrategies.NEAREST_NEIGHBOR,
+                BatchingStrategies.HILBERT)) {
+            List<List<Customer>> batches = BatchingStrategies.forName(name).createBatches(41.0, 29.0, customers, 95);
+
+            assertEquals(11, batches.size(), name);
+            Set<Long> seen = new HashSet<>();
+            for (List<Customer> batch : batches) {
+                assertTrue(batch.size() <= 95, name);
+                batch.forEach(customer -> assertTrue(seen.add(customer.getMyId()), name));
+            }
+            assertEquals(1000, seen.size(), name);
+        }
+    }
+
+    @Test
+    void shouldBuildMoreCompactBatchesThanNearestNeighborChunks() {
+        List<Customer> customers = createRandomCustomers(2000);
+
+        double bisection = totalDiameter(BatchingStrategies.forName(BatchingStrategies.BISECTION)
+                .createBatches(41.0, 29.0, customers, 50));
+        double chunks = totalDiameter(BatchingStrategies.forName(BatchingStrategies.NEAREST_NEIGHBOR)
+                .createBatches(41.0, 29.0, customers, 50));
+
+        assertTrue(bisection < chunks, bisection + " vs " + chunks);
+    }
+
+    @Test
+    void shouldVisitClustersAlongALine() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            customers.add(createCustomer((long) i, 41.0 + i * 0.001, 29.0 + i * 0.001));
+        }
+
+        List<List<Customer>> batches = BatchingStrategies.forName(BatchingStrategies.BISECTION)
+                .createBatches(41.0, 29.0, customers, 50);
+
+        List<Long> ids = new ArrayList<>();
+        batches.forEach(batch -> batch.forEach(customer -> ids.add(customer.getMyId())));
+        assertEquals(3, batches.size());
+        for (int i = 0; i < 120; i++) {
+            assertEquals((long) i, ids.get(i));
+        }
+    }
+
+    @Test
+    void shouldWalkHilbertCurveFromTheEndNearestTheStart() {
+        List<Customer> customers = createRandomCustomers(500);
+
+        List<Customer> forward = HilbertCurveBatching.sortByHilbertIndex(40.8, 28.6, customers);
+        Customer first = forward.get(0);
+        Customer last = forward.get(forward.size() - 1);
+        List<Customer> backward = HilbertCurveBatching.sortByHilbertIndex(last.getLatitude(), last.getLongitude(), customers);
+
+        assertEquals(first, HilbertCurveBatching.sortByHilbertIndex(first.getLatitude(), first.getLongitude(), customers).get(0));
+        assertEquals(last, backward.get(0));
+        assertEquals(first, backward.get(backward.size() - 1));
+    }
+
+    @Test
+    void shouldKeepNeighbouringCellsAdjacentOnTheCurve() {
+        // The first four cells of an order-16 curve
+        assertEquals(0L, HilbertCurveBatching.hilbertIndex(0, 0));
+        assertEquals(1L, HilbertCurveBatching.hilbertIndex(1, 0));
+        assertEquals(2L, HilbertCurveBatching.hilbertIndex(1, 1));
+        assertEquals(3L, HilbertCurveBatching.hilbertIndex(0, 1));
+    }
+
+    @Test
+    void shouldSortPointsAcrossTheWholeCurveInCurveOrder() {
+        // Square box around the equator, so cells map one to one onto lat/lng offsets
+        Random random = new Random(7);
+        List<Customer> customers = new ArrayList<>();
+        customers.add(createCustomer(0L, -1.0, -1.0));
+        customers.add(createCustomer(1L, 1.0, 1.0));
+        for (int i = 2; i < 2000; i++) {
+            customers.add(createCustomer((long) i, random.nextDouble() * 2 - 1, random.nextDouble() * 2 - 1));
+        }
+
+        List<Customer> sorted = HilbertCurveBatching.sortByHilbertIndex(-1.0, -1.0, customers);
+
+        double cellsPerUnit = ((1 << 16) - 1) / 2.0;
+        long previous = -1;
+        boolean reachedSecondHalf = false;
+        for (Customer customer : sorted) {
+            long index = HilbertCurveBatching.hilbertIndex(
+                    (int) ((customer.getLongitude() + 1.0) * cellsPerUnit),
+                    (int) ((customer.getLatitude() + 1.0) * cellsPerUnit));
+            assertTrue(index >= previous, "curve order broken at customer " + customer.getMyId());
+            reachedSecondHalf |= index >= 1L << 31;
+            previous = index;
+        }
+        assertTrue(reachedSecondHalf);
+    }
+
+    @Test
+    void shouldRejectUnknownStrategy() {
+        assertThrows(IllegalArgumentException.class, () -> BatchingStrategies.forName("k-means"));
+    }
+
+    private double totalDiameter(List<List<Customer>> batches) {
+        double total = 0.0;
+        for (List<Customer> batch : batches) {
+            double diameter = 0.0;
+            for (Customer a : batch) {
+                for (Customer b : batch) {
+                    diameter = Math.max(diameter, GeoPoints.haversineKm(
+                            a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()));
+                }
+            }
+            total += diameter;
+        }
+        return total;
+    }
+
+    private List<Customer> createRandomCustomers(int size) {
+        Random random = new Random(42);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            customers.add(createCustomer((long) i, 40.8 + random.nextDouble() * 0.5, 28.6 + random.nextDouble() * 0.8));
+        }
+        return customers;
+    }
+
+    private Customer createCustomer(Long id, double lat, double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -0,0 +1,88 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateGraphTest {
+
+    @Test
+    void shouldListNearestNeighboursClosestFirst() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            customers.add(createCustomer(i, 41.0, 29.0 + (i + 1) * 0.01));
+        }
+
+        CandidateGraph graph = CandidateGraph.haversine(41.0, 29.0, customers, 3);
+
+        assertEquals(6, graph.size());
+        assertEquals(3, graph.k());
+        // Node 3 sits between 2 and 4, then 1 and 5 are both two steps away
+        assertTrue(Arrays.asList(2, 4).contains(graph.neighbor(3, 0)));
+        assertTrue(Arrays.asList(2, 4).contains(graph.neighbor(3, 1)));
+        assertEquals(graph.cost(3, 2), graph.neighborCost(3, 0), 1e-4);
+        assertTrue(graph.neighborCost(3, 1) <= graph.neighborCost(3, 2));
+        assertEquals(1, graph.neighbor(0, 0));
+    }
+
+    @Test
+    void shouldCapNeighbourListsAtAvailableNodes() {
+        CandidateGraph graph = CandidateGraph.haversine(41.0, 29.0,
+                List.of(createCustomer(1, 41.0, 29.01), createCustomer(2, 41.0, 29.02)), 10);
+
+        assertEquals(2, graph.k());
+        assertEquals(2, graph.neighbor(1, 1) == 0 ? graph.neighbor(1, 0) : graph.neighbor(1, 1));
+    }
+
+    @Test
+    void shouldVisitShuffledLineInOrder() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            customers.add(createCustomer(i, 41.0, 29.0 + (i + 1) * 0.001));
+        }
+        Collections.shuffle(customers, new Random(4));
+
+        CandidateGraph graph = CandidateGraph.haversine(41.0, 29.0, customers, 8);
+        int[] order = CandidateGraphSolver.solve(graph, Duration.ofSeconds(2));
+
+        for (int k = 0; k < order.length; k++) {
+            assertEquals((long) k, customers.get(order[k] - 1).getMyId());
+        }
+    }
+
+    @Test
+    void shouldImproveLargeNearestNeighborTour() {
+        Random random = new Random(17);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            customers.add(createCustomer(i, 41.0 + random.nextDouble() * 0.3, 29.0 + random.nextDouble() * 0.3));
+        }
+        CandidateGraph graph = CandidateGraph.haversine(41.15, 29.15, customers, 10);
+
+        int[] greedy = CandidateGraphSolver.solve(graph, Duration.ZERO);
+        int[] improved = CandidateGraphSolver.solve(graph, Duration.ofSeconds(5));
+
+        int[] sorted = improved.clone();
+        Arrays.sort(sorted);
+        for (int k = 0; k < sorted.length; k++) {
+            assertEquals(k + 1, sorted[k]);
+        }
+        assertTrue(graph.pathCost(improved) < graph.pathCost(greedy) * 0.9);
+    }
+
+    private Customer createCustomer(long id, double lat, double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
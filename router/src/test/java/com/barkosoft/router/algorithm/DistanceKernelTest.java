@@ -0,0 +1,56 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DistanceKernelTest {
+
+    @Test
+    void shouldProduceSameChordDistancesAsScalarKernel() {
+        GeoPoints points = createPoints(1003);
+        double[] expected = new double[points.size()];
+        double[] actual = new double[points.size()];
+
+        DistanceKernels.scalar().chordSquared(points.xs(), points.ys(), points.zs(), 0, points.size(),
+                0.5, 0.4, 0.6, expected);
+        DistanceKernels.preferred().chordSquared(points.xs(), points.ys(), points.zs(), 0, points.size(),
+                0.5, 0.4, 0.6, actual);
+
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void shouldWriteSubRangeFromStartOfOutput() {
+        GeoPoints points = createPoints(37);
+        double[] all = new double[points.size()];
+        double[] range = new double[points.size()];
+
+        DistanceKernels.preferred().chordSquared(points.xs(), points.ys(), points.zs(), 0, points.size(),
+                0.5, 0.4, 0.6, all);
+        DistanceKernels.preferred().chordSquared(points.xs(), points.ys(), points.zs(), 5, 30,
+                0.5, 0.4, 0.6, range);
+
+        for (int i = 5; i < 30; i++) {
+            assertEquals(all[i], range[i - 5]);
+        }
+    }
+
+    private GeoPoints createPoints(int size) {
+        Random random = new Random(7);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer();
+            customer.setMyId((long) i);
+            customer.setLatitude(40.8 + random.nextDouble() * 0.5);
+            customer.setLongitude(28.6 + random.nextDouble() * 0.8);
+            customers.add(customer);
+        }
+        return GeoPoints.of(customers);
+    }
+}
@@ -0,0 +1,70 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeoPointsTest {
+
+    @Test
+    void shouldCalculateHaversineDistanceBetweenIstanbulAndAnkara() {
+        double distance = GeoPoints.haversineKm(41.0082, 28.9784, 39.9334, 32.8597);
+
+        assertEquals(350.0, distance, 5.0);
+    }
+
+    @Test
+    void shouldMatchStaticHaversineForLoadedPoints() {
+        GeoPoints points = GeoPoints.of(createCustomers());
+
+        assertEquals(GeoPoints.haversineKm(41.0082, 28.9784, 41.0180, 28.9647),
+                points.haversineKm(0, 1), 1e-9);
+        assertEquals(GeoPoints.haversineKm(41.0180, 28.9647, 41.0082, 28.9784),
+                points.haversineKm(1, 41.0082, 28.9784), 1e-9);
+        assertEquals(0.0, points.haversineKm(2, 2), 1e-9);
+    }
+
+    @Test
+    void shouldApproximateHaversineWithEquirectangularOverShortDistances() {
+        GeoPoints points = GeoPoints.of(createCustomers());
+
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = 0; j < points.size(); j++) {
+                double exact = points.haversineKm(i, j);
+                assertEquals(exact, points.equirectangularKm(i, points.latitude(j), points.longitude(j)),
+                        exact * 0.001 + 1e-9);
+            }
+        }
+        assertEquals(points.haversineKm(0, 2),
+                GeoPoints.equirectangularKm(41.0082, 28.9784, 41.0500, 29.0300), 0.01);
+    }
+
+    @Test
+    void shouldKeepCustomerCoordinates() {
+        GeoPoints points = GeoPoints.of(createCustomers());
+
+        assertEquals(3, points.size());
+        assertEquals(41.0180, points.latitude(1));
+        assertEquals(28.9647, points.longitude(1));
+    }
+
+    private List<Customer> createCustomers() {
+        return Arrays.asList(
+                createCustomer(1L, 41.0082, 28.9784),
+                createCustomer(2L, 41.0180, 28.9647),
+                createCustomer(3L, 41.0500, 29.0300)
+        );
+    }
+
+    private Customer createCustomer(Long id, Double lat, Double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -0,0 +1,38 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeohashTest {
+
+    @Test
+    void shouldEncodeKnownLocations() {
+        assertEquals("sxk97", Geohash.encode(41.0082, 28.9784, 5));
+        assertEquals("u4pruydqqvj", Geohash.encode(57.64911, 10.40744, 11));
+    }
+
+    @Test
+    void shouldShareCellForNearbyCentroids() {
+        List<Customer> european = Arrays.asList(
+                createCustomer(41.02, 28.95),
+                createCustomer(41.05, 29.01));
+        List<Customer> asian = Arrays.asList(
+                createCustomer(41.01, 29.10),
+                createCustomer(40.99, 29.05));
+
+        assertEquals(Geohash.ofCentroid(european, 3), Geohash.ofCentroid(asian, 3));
+        assertNull(Geohash.ofCentroid(List.of(new Customer()), 4));
+    }
+
+    private Customer createCustomer(Double lat, Double lng) {
+        Customer customer = new Customer();
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -0,0 +1,71 @@
+package com.barkosoft.router.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeldKarpSolverTest {
+
+    @Test
+    void shouldMatchBruteForceOnAsymmetricMatrices() {
+        Random random = new Random(5);
+        for (int round = 0; round < 20; round++) {
+            DistanceMatrix matrix = randomMatrix(random, 8);
+
+            int[] order = HeldKarpSolver.solve(matrix);
+
+            assertEquals(bruteForce(matrix, new int[]{1, 2, 3, 4, 5, 6, 7}, 0), matrix.pathCost(order), 1e-3);
+        }
+    }
+
+    @Test
+    void shouldNeverLoseToLocalSearch() {
+        Random random = new Random(8);
+        DistanceMatrix matrix = randomMatrix(random, 13);
+
+        double exact = matrix.pathCost(HeldKarpSolver.solve(matrix));
+
+        assertTrue(exact <= matrix.pathCost(LocalSearchSolver.solve(matrix, Duration.ofSeconds(1))) + 1e-3);
+    }
+
+    @Test
+    void shouldHandleTrivialAndOversizedInputs() {
+        assertArrayEquals(new int[0], HeldKarpSolver.solve(new DistanceMatrix(1, new float[1], true)));
+        assertArrayEquals(new int[]{1}, HeldKarpSolver.solve(new DistanceMatrix(2, new float[4], true)));
+
+        int size = HeldKarpSolver.MAX_STOPS + 2;
+        assertThrows(IllegalArgumentException.class,
+                () -> HeldKarpSolver.solve(new DistanceMatrix(size, new float[size * size], true)));
+    }
+
+    private DistanceMatrix randomMatrix(Random random, int size) {
+        float[] costs = new float[size * size];
+        for (int i = 0; i < costs.length; i++) {
+            costs[i] = i / size == i % size ? 0 : 1 + random.nextInt(100);
+        }
+        return new DistanceMatrix(size, costs, false);
+    }
+
+    // Cheapest cost of visiting nodes[k..] in any order after the prefix before k
+    private double bruteForce(DistanceMatrix matrix, int[] nodes, int k) {
+        if (k == nodes.length) {
+            return matrix.pathCost(nodes);
+        }
+        double best = Double.MAX_VALUE;
+        for (int i = k; i < nodes.length; i++) {
+            swap(nodes, k, i);
+            best = Math.min(best, bruteForce(matrix, nodes, k + 1));
+            swap(nodes, k, i);
+        }
+        return best;
+    }
+
+    private void swap(int[] nodes, int i, int j) {
+        int t = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = t;
+    }
+}
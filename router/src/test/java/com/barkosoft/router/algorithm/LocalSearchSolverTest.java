@@ -0,0 +1,85 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSearchSolverTest {
+
+    @Test
+    void shouldVisitShuffledLineInOrder() {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            customers.add(createCustomer(i, 41.0, 29.0 + (i + 1) * 0.01));
+        }
+        Collections.shuffle(customers, new Random(3));
+
+        DistanceMatrix matrix = DistanceMatrix.haversine(41.0, 29.0, customers);
+        int[] order = LocalSearchSolver.solve(matrix, Duration.ofSeconds(1));
+
+        for (int k = 0; k < order.length; k++) {
+            assertEquals((long) k, customers.get(order[k] - 1).getMyId());
+        }
+    }
+
+    @Test
+    void shouldImproveOnNearestNeighbor() {
+        Random random = new Random(11);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            customers.add(createCustomer(i, 41.0 + random.nextDouble() * 0.2, 29.0 + random.nextDouble() * 0.2));
+        }
+        DistanceMatrix matrix = DistanceMatrix.haversine(41.1, 29.1, customers);
+
+        int[] greedy = LocalSearchSolver.solve(matrix, Duration.ZERO);
+        int[] improved = LocalSearchSolver.solve(matrix, Duration.ofSeconds(2));
+
+        assertPermutation(greedy, customers.size());
+        assertPermutation(improved, customers.size());
+        assertTrue(matrix.pathCost(improved) < matrix.pathCost(greedy) * 0.95);
+    }
+
+    @Test
+    void shouldRespectAsymmetricCosts() {
+        // Going 1 -> 2 -> 3 is cheap, any other direction between them is expensive
+        float[] costs = {
+                0, 1, 9, 9,
+                9, 0, 1, 9,
+                9, 9, 0, 1,
+                9, 9, 9, 0
+        };
+        DistanceMatrix matrix = new DistanceMatrix(4, costs, false);
+
+        assertArrayEquals(new int[]{1, 2, 3}, LocalSearchSolver.solve(matrix, Duration.ofSeconds(1)));
+        assertEquals(3.0, matrix.pathCost(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    void shouldRejectMismatchedMatrix() {
+        assertThrows(IllegalArgumentException.class, () -> new DistanceMatrix(3, new float[8], true));
+    }
+
+    private void assertPermutation(int[] order, int customers) {
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        for (int k = 0; k < customers; k++) {
+            assertEquals(k + 1, sorted[k]);
+        }
+    }
+
+    private Customer createCustomer(long id, double lat, double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -0,0 +1,93 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioSolverTest {
+
+    @Test
+    void shouldMatchOrBeatSingleSearch() {
+        DistanceMatrix matrix = randomMatrix(300);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[] single = LocalSearchSolver.solve(matrix, Duration.ofSeconds(5));
+            int[] portfolio = PortfolioSolver.solve(matrix, Duration.ofSeconds(5), 4, pool);
+
+            int[] sorted = portfolio.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < sorted.length; k++) {
+                assertEquals(k + 1, sorted[k]);
+            }
+            assertTrue(matrix.pathCost(portfolio) <= matrix.pathCost(single) + 1e-3);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldFallBackToSingleSearchWithOneWorker() {
+        DistanceMatrix matrix = randomMatrix(50);
+
+        assertArrayEquals(LocalSearchSolver.solve(matrix, Duration.ofSeconds(1)),
+                PortfolioSolver.solve(matrix, Duration.ofSeconds(1), 1, ForkJoinPool.commonPool()));
+    }
+
+    @Test
+    void shouldStopAtDeadline() {
+        DistanceMatrix matrix = randomMatrix(400);
+        long started = System.nanoTime();
+
+        int[] order = PortfolioSolver.solve(matrix, Duration.ofMillis(50), 3, ForkJoinPool.commonPool());
+
+        assertEquals(400, order.length);
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() < 2000);
+    }
+
+    @Test
+    void shouldReturnTourWhenBudgetExpiresBeforePoolStartsWorkers() {
+        DistanceMatrix matrix = randomMatrix(100);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            // The only pool thread is busy past the deadline, so every forked worker starts late
+            pool.submit(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            int[] order = PortfolioSolver.solve(matrix, Duration.ZERO, 4, pool);
+
+            int[] sorted = order.clone();
+            Arrays.sort(sorted);
+            for (int k = 0; k < sorted.length; k++) {
+                assertEquals(k + 1, sorted[k]);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private DistanceMatrix randomMatrix(int customers) {
+        Random random = new Random(customers);
+        List<Customer> points = new ArrayList<>();
+        for (int i = 0; i < customers; i++) {
+            Customer customer = new Customer();
+            customer.setMyId((long) i);
+            customer.setLatitude(41.0 + random.nextDouble() * 0.3);
+            customer.setLongitude(29.0 + random.nextDouble() * 0.3);
+            points.add(customer);
+        }
+        return DistanceMatrix.haversine(41.15, 29.15, points);
+    }
+}
@@ -0,0 +1,52 @@
+package com.barkosoft.router.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeamRepairTest {
+
+    @Test
+    void shouldUntangleDetourAtSeam() {
+        // Stops along a line eastwards; the first batch ended on 4 then walked back to 3
+        double[] lngs = {29.00, 29.01, 29.02, 29.04, 29.03, 29.05, 29.06};
+        double[] lats = new double[lngs.length];
+        Arrays.fill(lats, 41.0);
+
+        List<SeamRepair.Window> windows = new SeamRepair(lats, lngs).repair(new int[]{4}, 2);
+
+        assertEquals(1, windows.size());
+        SeamRepair.Window window = windows.get(0);
+        assertEquals(2, window.from());
+        assertEquals(5, window.to());
+        assertArrayEquals(new int[]{2, 4, 3, 5}, window.order());
+        assertTrue(window.savedKm() > 1.5);
+    }
+
+    @Test
+    void shouldLeaveStraightRouteAlone() {
+        double[] lngs = {29.00, 29.01, 29.02, 29.03, 29.04, 29.05};
+        double[] lats = new double[lngs.length];
+        Arrays.fill(lats, 41.0);
+
+        assertTrue(new SeamRepair(lats, lngs).repair(new int[]{2, 4}, 3).isEmpty());
+    }
+
+    @Test
+    void shouldMergeOverlappingWindows() {
+        // Two seams one stop apart, both around the same zig-zag
+        double[] lngs = {29.00, 29.03, 29.01, 29.04, 29.02, 29.05};
+        double[] lats = new double[lngs.length];
+        Arrays.fill(lats, 41.0);
+
+        List<SeamRepair.Window> windows = new SeamRepair(lats, lngs).repair(new int[]{2, 4}, 2);
+
+        assertEquals(1, windows.size());
+        assertEquals(1, windows.get(0).from());
+        assertEquals(5, windows.get(0).to());
+        assertArrayEquals(new int[]{2, 4, 1, 3, 5}, windows.get(0).order());
+    }
+}
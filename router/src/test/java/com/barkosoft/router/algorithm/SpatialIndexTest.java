@@ -0,0 +1,165 @@
+package com.barkosoft.router.algorithm;
+
+import com.barkosoft.router.dto.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialIndexTest {
+
+    @Test
+    void shouldFindNearestCustomer() {
+        List<Customer> customers = Arrays.asList(
+                createCustomer(1L, 41.1, 29.1),
+                createCustomer(2L, 41.01, 29.01),
+                createCustomer(3L, 41.05, 29.05)
+        );
+
+        SpatialIndex index = new SpatialIndex(customers);
+
+        assertEquals(1, index.nearest(41.0, 29.0));
+    }
+
+    @Test
+    void shouldSkipRemovedCustomers() {
+        List<Customer> customers = Arrays.asList(
+                createCustomer(1L, 41.1, 29.1),
+                createCustomer(2L, 41.01, 29.01),
+                createCustomer(3L, 41.05, 29.05)
+        );
+
+        SpatialIndex index = new SpatialIndex(customers);
+        index.remove(1);
+
+        assertEquals(2, index.remaining());
+        assertEquals(2, index.nearest(41.0, 29.0));
+
+        index.remove(2);
+        index.remove(0);
+
+        assertEquals(-1, index.nearest(41.0, 29.0));
+    }
+
+    @Test
+    void shouldPreferLowerIndexOnTies() {
+        List<Customer> customers = Arrays.asList(
+                createCustomer(1L, 41.0, 29.0),
+                createCustomer(2L, 41.0, 29.0),
+                createCustomer(3L, 41.0, 29.0)
+        );
+
+        SpatialIndex index = new SpatialIndex(customers);
+
+        assertEquals(0, index.nearest(41.0, 29.0));
+        index.remove(0);
+        assertEquals(1, index.nearest(41.0, 29.0));
+    }
+
+    @Test
+    void shouldMatchBruteForceNearestNeighborOrder() {
+        Random random = new Random(42);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            customers.add(createCustomer((long) i,
+                    40.8 + random.nextDouble() * 0.5,
+                    28.6 + random.nextDouble() * 0.8));
+        }
+
+        List<Long> expected = bruteForceOrder(41.0082, 28.9784, customers);
+
+        SpatialIndex index = new SpatialIndex(customers);
+        List<Long> actual = new ArrayList<>();
+        double lat = 41.0082;
+        double lng = 28.9784;
+        while (index.remaining() > 0) {
+            int nearest = index.nearest(lat, lng);
+            index.remove(nearest);
+            actual.add(customers.get(nearest).getMyId());
+            lat = customers.get(nearest).getLatitude();
+            lng = customers.get(nearest).getLongitude();
+        }
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldFindKNearestLikeBruteForce() {
+        Random random = new Random(21);
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            customers.add(createCustomer((long) i, 41.0 + random.nextDouble() * 0.2, 29.0 + random.nextDouble() * 0.2));
+        }
+        SpatialIndex index = new SpatialIndex(customers);
+        index.remove(7);
+        int[] nearest = new int[8];
+
+        for (int i = 0; i < customers.size(); i += 37) {
+            Customer from = customers.get(i);
+            Integer[] expected = new Integer[customers.size()];
+            for (int j = 0; j < expected.length; j++) {
+                expected[j] = j;
+            }
+            Arrays.sort(expected, (a, b) -> Double.compare(
+                    haversine(from.getLatitude(), from.getLongitude(), customers.get(a).getLatitude(), customers.get(a).getLongitude()),
+                    haversine(from.getLatitude(), from.getLongitude(), customers.get(b).getLatitude(), customers.get(b).getLongitude())));
+
+            // Alternate k so the shared scratch buffer is reused at a smaller size
+            int k = (i / 37) % 2 == 0 ? 8 : 3;
+            assertEquals(k, index.nearestTo(i, k, nearest));
+            int r = 0;
+            for (int j : expected) {
+                if (r == k) {
+                    break;
+                }
+                if (j != i && j != 7) {
+                    assertEquals(j, nearest[r++]);
+                }
+            }
+        }
+    }
+
+    private List<Long> bruteForceOrder(double startLat, double startLng, List<Customer> customers) {
+        List<Customer> remaining = new ArrayList<>(customers);
+        List<Long> order = new ArrayList<>();
+        double lat = startLat;
+        double lng = startLng;
+        while (!remaining.isEmpty()) {
+            Customer nearest = null;
+            double minDistance = Double.MAX_VALUE;
+            for (Customer customer : remaining) {
+                double distance = haversine(lat, lng, customer.getLatitude(), customer.getLongitude());
+                if (distance < minDistance) {
+                    minDistance = distance;
+                    nearest = customer;
+                }
+            }
+            remaining.remove(nearest);
+            order.add(nearest.getMyId());
+            lat = nearest.getLatitude();
+            lng = nearest.getLongitude();
+        }
+        return order;
+    }
+
+    private double haversine(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 6371.0 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private Customer createCustomer(Long id, Double lat, Double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -0,0 +1,138 @@
+package com.barkosoft.router.benchmark;
+
+import com.barkosoft.router.algorithm.BatchingStrategies;
+import com.barkosoft.router.algorithm.BatchingStrategy;
+import com.barkosoft.router.algorithm.GeoPoints;
+import com.barkosoft.router.dto.Customer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batching latency for nearest-neighbor chunks, recursive bisection and the
+ * Hilbert-curve presort. Route quality is printed once per fork: the straight-line length
+ * of every batch's path after 2-opt from its start point, standing in for the
+ * OSRM trips, plus the summed batch diameters.
+ *
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main BatchingStrategyBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchingStrategyBenchmark {
+
+    private static final double START_LAT = 41.0082;
+    private static final double START_LNG = 28.9784;
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"500", "5000"})
+    public int size;
+
+    @Param({"nearest-neighbor", "bisection", "hilbert"})
+    public String strategy;
+
+    private List<Customer> customers;
+    private BatchingStrategy batching;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        customers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer();
+            customer.setMyId((long) i);
+            customer.setLatitude(40.8 + random.nextDouble() * 0.5);
+            customer.setLongitude(28.6 + random.nextDouble() * 0.8);
+            customers.add(customer);
+        }
+        batching = BatchingStrategies.forName(strategy);
+
+        List<List<Customer>> batches = batching.createBatches(START_LAT, START_LNG, customers, BATCH_SIZE);
+        System.out.printf("%n%s, %d customers: path %.1f km, batch diameters %.1f km%n",
+                strategy, size, pathLength(batches), totalDiameter(batches));
+    }
+
+    @Benchmark
+    public List<List<Customer>> createBatches() {
+        return batching.createBatches(START_LAT, START_LNG, customers, BATCH_SIZE);
+    }
+
+    // Each batch is improved with 2-opt from its start, like OSRM's trip service would
+    private double pathLength(List<List<Customer>> batches) {
+        double length = 0.0;
+        double lat = START_LAT;
+        double lng = START_LNG;
+        for (List<Customer> batch : batches) {
+            int n = batch.size() + 1;
+            double[] lats = new double[n];
+            double[] lngs = new double[n];
+            lats[0] = lat;
+            lngs[0] = lng;
+            for (int i = 1; i < n; i++) {
+                lats[i] = batch.get(i - 1).getLatitude();
+                lngs[i] = batch.get(i - 1).getLongitude();
+            }
+            int[] tour = new int[n];
+            for (int i = 0; i < n; i++) {
+                tour[i] = i;
+            }
+            twoOpt(tour, lats, lngs);
+            for (int i = 1; i < n; i++) {
+                length += distance(tour[i - 1], tour[i], lats, lngs);
+            }
+            lat = batch.get(batch.size() - 1).getLatitude();
+            lng = batch.get(batch.size() - 1).getLongitude();
+        }
+        return length;
+    }
+
+    // Open-path 2-opt with the first point fixed
+    private void twoOpt(int[] tour, double[] lats, double[] lngs) {
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < tour.length - 1; i++) {
+                for (int j = i + 1; j < tour.length; j++) {
+                    double before = distance(tour[i - 1], tour[i], lats, lngs)
+                            + (j + 1 < tour.length ? distance(tour[j], tour[j + 1], lats, lngs) : 0.0);
+                    double after = distance(tour[i - 1], tour[j], lats, lngs)
+                            + (j + 1 < tour.length ? distance(tour[i], tour[j + 1], lats, lngs) : 0.0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int t = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = t;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private double distance(int a, int b, double[] lats, double[] lngs) {
+        return GeoPoints.haversineKm(lats[a], lngs[a], lats[b], lngs[b]);
+    }
+
+    private double totalDiameter(List<List<Customer>> batches) {
+        double total = 0.0;
+        for (List<Customer> batch : batches) {
+            double diameter = 0.0;
+            for (Customer a : batch) {
+                for (Customer b : batch) {
+                    diameter = Math.max(diameter, GeoPoints.haversineKm(
+                            a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()));
+                }
+            }
+            total += diameter;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,116 @@
+package com.barkosoft.router.benchmark;
+
+import com.barkosoft.router.algorithm.DistanceKernels;
+import com.barkosoft.router.algorithm.GeoPoints;
+import com.barkosoft.router.dto.Customer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One-to-many distances from a point to every customer: the boxed
+ * calculateHaversineDistance the services used to copy against GeoPoints, and
+ * the scalar against the Vector API chord kernel. Size 16 is a SpatialIndex
+ * leaf scan, the kernel's only caller.
+ *
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main DistanceKernelBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class DistanceKernelBenchmark {
+
+    private static final double START_LAT = 41.0082;
+    private static final double START_LNG = 28.9784;
+
+    @Param({"16", "100", "2000", "20000"})
+    public int size;
+
+    private List<Customer> customers;
+    private GeoPoints points;
+    private double[] xs;
+    private double[] ys;
+    private double[] zs;
+    private double qx;
+    private double qy;
+    private double qz;
+    private double[] out;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        customers = new ArrayList<>(size);
+        xs = new double[size];
+        ys = new double[size];
+        zs = new double[size];
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer();
+            customer.setMyId((long) i);
+            customer.setLatitude(40.8 + random.nextDouble() * 0.5);
+            customer.setLongitude(28.6 + random.nextDouble() * 0.8);
+            customers.add(customer);
+
+            double lat = Math.toRadians(customer.getLatitude());
+            double lng = Math.toRadians(customer.getLongitude());
+            xs[i] = Math.cos(lat) * Math.cos(lng);
+            ys[i] = Math.cos(lat) * Math.sin(lng);
+            zs[i] = Math.sin(lat);
+        }
+        points = GeoPoints.of(customers);
+        out = new double[size];
+
+        double lat = Math.toRadians(START_LAT);
+        double lng = Math.toRadians(START_LNG);
+        qx = Math.cos(lat) * Math.cos(lng);
+        qy = Math.cos(lat) * Math.sin(lng);
+        qz = Math.sin(lat);
+    }
+
+    @Benchmark
+    public void boxedHaversine(Blackhole blackhole) {
+        Double lat = START_LAT;
+        Double lng = START_LNG;
+        for (Customer customer : customers) {
+            blackhole.consume(calculateHaversineDistance(lat, lng, customer.getLatitude(), customer.getLongitude()));
+        }
+    }
+
+    @Benchmark
+    public void geoPointsHaversine(Blackhole blackhole) {
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(points.haversineKm(i, START_LAT, START_LNG));
+        }
+    }
+
+    @Benchmark
+    public double[] scalarKernelChord() {
+        DistanceKernels.scalar().chordSquared(xs, ys, zs, 0, size, qx, qy, qz, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] vectorKernelChord() {
+        DistanceKernels.preferred().chordSquared(xs, ys, zs, 0, size, qx, qy, qz, out);
+        return out;
+    }
+
+    // The per-service implementation before GeoPoints, kept as the baseline
+    private double calculateHaversineDistance(Double lat1, Double lng1, Double lat2, Double lng2) {
+        final double R = 6371.0;
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2) +
+                Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) *
+                        Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return R * c;
+    }
+}
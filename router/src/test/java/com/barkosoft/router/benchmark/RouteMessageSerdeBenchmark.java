@@ -0,0 +1,88 @@
+package com.barkosoft.router.benchmark;
+
+import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+import com.barkosoft.router.serialization.RouteMessageDeserializer;
+import com.barkosoft.router.serialization.RouteMessageSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serde cost of one 95-customer batch message: Spring's JSON serde against the
+ * binary codec. Encoded sizes are printed once per fork.
+ *
+ * mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main RouteMessageSerdeBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteMessageSerdeBenchmark {
+
+    private static final int BATCH_SIZE = 95;
+
+    private RouteOptimizationMessage message;
+    private JsonSerializer<RouteOptimizationMessage> jsonSerializer;
+    private JsonDeserializer<RouteOptimizationMessage> jsonDeserializer;
+    private RouteMessageSerializer binarySerializer;
+    private RouteMessageDeserializer binaryDeserializer;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Customer> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Customer customer = new Customer();
+            customer.setMyId(100000L + random.nextInt(50000));
+            customer.setLatitude(40.8 + random.nextDouble() * 0.5);
+            customer.setLongitude(28.6 + random.nextDouble() * 0.8);
+            batch.add(customer);
+        }
+        message = new RouteOptimizationMessage("6f1c2e9a-4b7d-4c1e-9f3a-2d5b8e7c1a90", 41.0082, 28.9784, batch, 3, 7);
+        message.setPreviousBatchLastLat(41.0123);
+        message.setPreviousBatchLastLng(29.0123);
+        message.setReplyTo("router-7c9f5d-x2k4q");
+
+        jsonSerializer = new JsonSerializer<>();
+        jsonDeserializer = new JsonDeserializer<>(RouteOptimizationMessage.class);
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.barkosoft.router.dto"), false);
+        binarySerializer = new RouteMessageSerializer();
+        binaryDeserializer = new RouteMessageDeserializer();
+
+        json = jsonSerializer.serialize("topic", message);
+        binary = binarySerializer.serialize("topic", message);
+        System.out.printf("%nBytes per %d-customer batch: json=%d binary=%d%n", BATCH_SIZE, json.length, binary.length);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize("topic", message);
+    }
+
+    @Benchmark
+    public RouteOptimizationMessage jsonDeserialize() {
+        return jsonDeserializer.deserialize("topic", json);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return binarySerializer.serialize("topic", message);
+    }
+
+    @Benchmark
+    public RouteOptimizationMessage binaryDeserialize() {
+        return binaryDeserializer.deserialize("topic", binary);
+    }
+}
@@ -0,0 +1,53 @@
+package com.barkosoft.router.config;
+
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KafkaConfigTest {
+
+    private KafkaConfig kafkaConfig;
+
+    @BeforeEach
+    void setUp() {
+        // Same values as application.properties
+        kafkaConfig = new KafkaConfig();
+        ReflectionTestUtils.setField(kafkaConfig, "bootstrapServers", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaConfig, "serializationFormat", "binary");
+        ReflectionTestUtils.setField(kafkaConfig, "compressionType", "lz4");
+        ReflectionTestUtils.setField(kafkaConfig, "lingerMs", 10);
+        ReflectionTestUtils.setField(kafkaConfig, "batchSizeBytes", 131072);
+        ReflectionTestUtils.setField(kafkaConfig, "requestTimeoutMs", 30000);
+        ReflectionTestUtils.setField(kafkaConfig, "deliveryTimeoutMs", 120000);
+    }
+
+    @Test
+    void shouldBuildRequestProducerWithConfiguredSettings() {
+        ProducerFactory<String, RouteOptimizationMessage> factory = kafkaConfig.producerFactory();
+
+        // KafkaProducer validates its configuration here; no broker is contacted
+        Producer<String, RouteOptimizationMessage> producer = factory.createProducer();
+        producer.close(Duration.ZERO);
+
+        assertEquals(120000, factory.getConfigurationProperties().get(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG));
+    }
+
+    @Test
+    void shouldRaiseDeliveryTimeoutBelowLingerPlusRequestTimeout() {
+        ReflectionTestUtils.setField(kafkaConfig, "deliveryTimeoutMs", 30000);
+
+        ProducerFactory<String, RouteOptimizationMessage> factory = kafkaConfig.producerFactory();
+        Producer<String, RouteOptimizationMessage> producer = factory.createProducer();
+        producer.close(Duration.ZERO);
+
+        assertEquals(30010, factory.getConfigurationProperties().get(ProducerConfig.DELIVERY_TIMEOUT_MS_CONFIG));
+    }
+}
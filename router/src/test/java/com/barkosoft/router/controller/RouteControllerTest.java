@@ -1,6 +1,8 @@
 package com.barkosoft.router.controller;
 
 import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.JobStatusResponse;
+import com.barkosoft.router.dto.RouteChunk;
 import com.barkosoft.router.dto.RouteRequest;
 import com.barkosoft.router.dto.RouteResponse;
 import com.barkosoft.router.service.RouteService;
@@ -9,14 +11,17 @@ import com.barkosoft.router.service.JobTrackingService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -25,28 +30,30 @@ import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
-@ExtendWith(MockitoExtension.class)
+@WebMvcTest(RouteController.class)
+// application.properties takes the port from SERVER_PORT, which plain test runs do not set
+@TestPropertySource(properties = "server.port=0")
 class RouteControllerTest {
 
+    @Autowired
     private MockMvc mockMvc;
 
-    @Mock
+    @MockitoBean
     private RouteService routeService;
 
-    @Mock
+    @MockitoBean
     private KafkaRouteProducer kafkaRouteProducer;
 
-    @Mock
+    @MockitoBean
     private JobTrackingService jobTrackingService;
 
-    @InjectMocks
+    @Autowired
     private RouteController routeController;
 
     private ObjectMapper objectMapper = new ObjectMapper();
 
     @BeforeEach
     void setUp() {
-        mockMvc = MockMvcBuilders.standaloneSetup(routeController).build();
         // Set kafka properties using reflection
         org.springframework.test.util.ReflectionTestUtils.setField(routeController, "kafkaEnabled", false);
         org.springframework.test.util.ReflectionTestUtils.setField(routeController, "kafkaBatchThreshold", 50);
@@ -57,17 +64,91 @@ class RouteControllerTest {
         RouteRequest request = createValidRouteRequest();
         RouteResponse response = createMockRouteResponse();
 
-        when(routeService.optimizeRoute(anyDouble(), anyDouble(), any())).thenReturn(response);
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), any(), any())).thenReturn(Mono.just(response));
 
-        mockMvc.perform(post("/api/route/optimize")
+        MvcResult result = mockMvc.perform(post("/api/route/optimize")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.optimizedCustomerIds").isArray())
                 .andExpect(jsonPath("$.totalDistance").value("5,000 km"))
                 .andExpect(jsonPath("$.status").value("success"));
     }
 
+    @Test
+    void shouldPassRequestedBatchingStrategy() throws Exception {
+        RouteRequest request = createValidRouteRequest();
+        request.setBatchingStrategy("hilbert");
+
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), eq("hilbert"), any()))
+                .thenReturn(Mono.just(createMockRouteResponse()));
+
+        MvcResult result = mockMvc.perform(post("/api/route/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldPassRequestedParallelism() throws Exception {
+        RouteRequest request = createValidRouteRequest();
+        request.setParallelism(2);
+
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), any(), eq(2)))
+                .thenReturn(Mono.just(createMockRouteResponse()));
+
+        MvcResult result = mockMvc.perform(post("/api/route/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldKeepOnePieceLocalSolvesOffKafka() throws Exception {
+        org.springframework.test.util.ReflectionTestUtils.setField(routeController, "kafkaEnabled", true);
+        RouteRequest request = createValidRouteRequest();
+        request.setCustomers(createCustomers(120));
+
+        when(routeService.solvesInOnePiece(120)).thenReturn(true);
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), any(), any()))
+                .thenReturn(Mono.just(createMockRouteResponse()));
+
+        MvcResult result = mockMvc.perform(post("/api/route/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+        verifyNoInteractions(kafkaRouteProducer);
+    }
+
+    @Test
+    void shouldRejectUnknownBatchingStrategy() throws Exception {
+        RouteRequest request = createValidRouteRequest();
+        request.setBatchingStrategy("k-means");
+
+        mockMvc.perform(post("/api/route/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(routeService);
+    }
+
     @Test
     void shouldReturnBadRequestForInvalidCoordinates() throws Exception {
         RouteRequest request = new RouteRequest();
@@ -98,12 +179,16 @@ class RouteControllerTest {
     void shouldHandleServiceException() throws Exception {
         RouteRequest request = createValidRouteRequest();
 
-        when(routeService.optimizeRoute(anyDouble(), anyDouble(), any()))
-                .thenThrow(new RuntimeException("OSRM API Error"));
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), any(), any()))
+                .thenReturn(Mono.error(new RuntimeException("OSRM API Error")));
 
-        mockMvc.perform(post("/api/route/optimize")
+        MvcResult result = mockMvc.perform(post("/api/route/optimize")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.status").value("error"));
     }
@@ -127,6 +212,71 @@ class RouteControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shouldAcceptJobAndReturnJobId() throws Exception {
+        RouteRequest request = createValidRouteRequest();
+
+        when(routeService.optimizeRouteReactive(anyDouble(), anyDouble(), any(), any(), any())).thenReturn(Mono.never());
+        when(jobTrackingService.getJobStatus(anyString())).thenAnswer(invocation ->
+                new JobStatusResponse(invocation.getArgument(0), "processing", 1, 0, 0L, null));
+
+        mockMvc.perform(post("/api/route/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.jobId").isNotEmpty())
+                .andExpect(jsonPath("$.status").value("processing"));
+
+        verify(jobTrackingService).createJob(anyString(), eq(1));
+    }
+
+    @Test
+    void shouldReturnAcceptedWhileJobIsRunning() throws Exception {
+        when(jobTrackingService.getResult("job-1")).thenReturn(null);
+        when(jobTrackingService.getJobStatus("job-1"))
+                .thenReturn(new JobStatusResponse("job-1", "processing", 3, 1, 0L, null));
+
+        mockMvc.perform(get("/api/route/jobs/job-1/result"))
+                .andExpect(status().isAccepted());
+    }
+
+    @Test
+    void shouldReturnJobResultWhenCompleted() throws Exception {
+        when(jobTrackingService.getResult("job-1")).thenReturn(createMockRouteResponse());
+
+        mockMvc.perform(get("/api/route/jobs/job-1/result"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalDistance").value("5,000 km"));
+    }
+
+    @Test
+    void shouldReturnNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get("/api/route/jobs/missing"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/route/jobs/missing/result"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldStreamBatchChunksAsServerSentEvents() throws Exception {
+        RouteChunk chunk = new RouteChunk("job-1", 0, 1, 2, Arrays.asList(1L, 2L), 3.5,
+                null, 0, null, List.of());
+        when(jobTrackingService.streamResults("job-1")).thenReturn(Flux.just(chunk));
+        when(jobTrackingService.getJobStatus("job-1"))
+                .thenReturn(new JobStatusResponse("job-1", "completed", 2, 2, 0L, 1L));
+
+        MvcResult result = mockMvc.perform(get("/api/route/jobs/job-1/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("event:batch")))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("\"optimizedCustomerIds\":[1,2]")))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("event:complete")));
+    }
+
     private RouteRequest createValidRouteRequest() {
         RouteRequest request = new RouteRequest();
         request.setStartLatitude(41.0082);
@@ -138,6 +288,14 @@ class RouteControllerTest {
         return request;
     }
 
+    private List<Customer> createCustomers(int count) {
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            customers.add(createCustomer((long) i + 1, 41.0 + i * 0.001, 29.0 + i * 0.001));
+        }
+        return customers;
+    }
+
     private Customer createCustomer(Long id, Double lat, Double lng) {
         Customer customer = new Customer();
         customer.setMyId(id);
@@ -0,0 +1,121 @@
+package com.barkosoft.router.serialization;
+
+import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.RouteOptimizationMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteMessageCodecTest {
+
+    @Test
+    void shouldRoundTripMessage() {
+        RouteOptimizationMessage message = createMessage(95);
+        message.setPreviousBatchLastLat(41.0123456789);
+        message.setPreviousBatchLastLng(29.0123456789);
+        message.setReplyTo("node-a");
+        message.setParallelism(4);
+
+        RouteOptimizationMessage decoded = RouteMessageCodec.decode(RouteMessageCodec.encode(message));
+
+        assertEquals(message.getJobId(), decoded.getJobId());
+        assertEquals(message.getReplyTo(), decoded.getReplyTo());
+        assertEquals(3, decoded.getBatchIndex());
+        assertEquals(7, decoded.getTotalBatches());
+        assertEquals(4, decoded.getParallelism());
+        assertEquals(41.0082, decoded.getStartLatitude());
+        assertEquals(28.9784, decoded.getStartLongitude());
+        assertEquals(41.0123456789, decoded.getPreviousBatchLastLat());
+        assertEquals(29.0123456789, decoded.getPreviousBatchLastLng());
+        assertEquals(95, decoded.getBatch().size());
+        for (int i = 0; i < 95; i++) {
+            Customer expected = message.getBatch().get(i);
+            Customer actual = decoded.getBatch().get(i);
+            assertEquals(expected.getMyId(), actual.getMyId());
+            assertEquals(expected.getLatitude(), actual.getLatitude(), 1e-7);
+            assertEquals(expected.getLongitude(), actual.getLongitude(), 1e-7);
+        }
+    }
+
+    @Test
+    void shouldKeepMissingFields() {
+        Customer partial = new Customer();
+        partial.setMyId(-5L);
+        partial.setLongitude(29.5);
+        RouteOptimizationMessage message = new RouteOptimizationMessage("job", null, null,
+                Arrays.asList(partial, null), 0, 1);
+
+        RouteOptimizationMessage decoded = RouteMessageCodec.decode(RouteMessageCodec.encode(message));
+
+        assertNull(decoded.getStartLatitude());
+        assertNull(decoded.getReplyTo());
+        assertNull(decoded.getParallelism());
+        assertEquals(-5L, decoded.getBatch().get(0).getMyId());
+        assertNull(decoded.getBatch().get(0).getLatitude());
+        assertEquals(29.5, decoded.getBatch().get(0).getLongitude());
+        assertNull(decoded.getBatch().get(1));
+    }
+
+    @Test
+    void shouldDecodeVersionOneMessages() {
+        RouteOptimizationMessage message = createMessage(5);
+        byte[] data = RouteMessageCodec.encode(message);
+        // Without parallelism the layout is what version 1 wrote
+        data[1] = 1;
+
+        RouteOptimizationMessage decoded = RouteMessageCodec.decode(data);
+
+        assertEquals(message.getJobId(), decoded.getJobId());
+        assertNull(decoded.getParallelism());
+        assertEquals(5, decoded.getBatch().size());
+    }
+
+    @Test
+    void shouldBeSmallerThanJson() {
+        RouteOptimizationMessage message = createMessage(95);
+
+        byte[] binary = new RouteMessageSerializer().serialize("topic", message);
+        byte[] json;
+        try (JsonSerializer<RouteOptimizationMessage> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize("topic", message);
+        }
+
+        assertTrue(binary.length * 3 < json.length, binary.length + " vs " + json.length);
+    }
+
+    @Test
+    void shouldFallBackToJsonForOlderRecords() {
+        RouteOptimizationMessage message = createMessage(3);
+        byte[] json;
+        try (JsonSerializer<RouteOptimizationMessage> serializer = new JsonSerializer<>()) {
+            json = serializer.serialize("topic", message);
+        }
+
+        RouteMessageDeserializer deserializer = new RouteMessageDeserializer();
+        deserializer.configure(Map.of("spring.json.trusted.packages", "com.barkosoft.router.dto"), false);
+        RouteOptimizationMessage decoded = deserializer.deserialize("topic", json);
+
+        assertEquals(message, decoded);
+        assertEquals(message, deserializer.deserialize("topic", RouteMessageCodec.encode(message)));
+    }
+
+    private RouteOptimizationMessage createMessage(int size) {
+        Random random = new Random(42);
+        List<Customer> batch = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Customer customer = new Customer();
+            customer.setMyId(100000L + random.nextInt(50000));
+            customer.setLatitude(Math.round((40.8 + random.nextDouble() * 0.5) * 1e6) / 1e6);
+            customer.setLongitude(Math.round((28.6 + random.nextDouble() * 0.8) * 1e6) / 1e6);
+            batch.add(customer);
+        }
+        return new RouteOptimizationMessage("6f1c2e9a-4b7d-4c1e-9f3a-2d5b8e7c1a90", 41.0082, 28.9784, batch, 3, 7);
+    }
+}
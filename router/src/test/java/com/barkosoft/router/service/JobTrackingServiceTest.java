@@ -1,12 +1,22 @@
 package com.barkosoft.router.service;
 
 import com.barkosoft.router.dto.BatchResult;
+import com.barkosoft.router.dto.JobStatusResponse;
+import com.barkosoft.router.dto.RouteChunk;
 import com.barkosoft.router.dto.RouteResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -101,4 +111,277 @@ class JobTrackingServiceTest {
         assertNotNull(result);
         assertTrue(result.getStatus().contains("timeout") || result.getStatus().contains("timed out"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldKeepResultAvailableAfterWaiting() {
+        String jobId = "test-job-5";
+        jobTrackingService.createJob(jobId, 1);
+        jobTrackingService.addBatchResult(createBatch(jobId, 0, Arrays.asList(1L, 2L), 2.0));
+
+        RouteResponse waited = jobTrackingService.waitForResult(jobId, Duration.ofSeconds(1));
+        RouteResponse polled = jobTrackingService.getResult(jobId);
+
+        assertEquals("success", waited.getStatus());
+        assertSame(waited, polled);
+        assertEquals("completed", jobTrackingService.getJobStatus(jobId).getStatus());
+    }
+
+    @Test
+    void shouldReportProgressWhileProcessing() {
+        String jobId = "test-job-6";
+        jobTrackingService.createJob(jobId, 3);
+        jobTrackingService.addBatchResult(createBatch(jobId, 1, Arrays.asList(3L), 1.0));
+
+        JobStatusResponse status = jobTrackingService.getJobStatus(jobId);
+
+        assertEquals("processing", status.getStatus());
+        assertEquals(3, status.getTotalBatches());
+        assertEquals(1, status.getCompletedBatches());
+        assertNull(status.getCompletedAt());
+        assertNull(jobTrackingService.getResult(jobId));
+    }
+
+    @Test
+    void shouldAggregateOutOfOrderBatchesAndIgnoreDuplicates() {
+        String jobId = "test-job-12";
+        jobTrackingService.createJob(jobId, 3);
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 2, 3L));
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 2, 3L));
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+        assertEquals(2, jobTrackingService.getJobStatus(jobId).getCompletedBatches());
+        assertNull(jobTrackingService.getResult(jobId));
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 0, 1L));
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+
+        RouteResponse result = jobTrackingService.getResult(jobId);
+        assertEquals(Arrays.asList(1L, 2L, 3L), result.getOptimizedCustomerIds());
+        assertEquals("3,000 km", result.getTotalDistance());
+        assertEquals(7, result.getRouteGeometry().size());
+        assertArrayEquals(new int[]{0, 2}, result.getCustomerGeometryMapping().get(1L));
+        assertArrayEquals(new int[]{2, 4}, result.getCustomerGeometryMapping().get(2L));
+        assertArrayEquals(new int[]{4, 6}, result.getCustomerGeometryMapping().get(3L));
+    }
+
+    @Test
+    void shouldCompleteWithTheSeamRepairedRoute() {
+        String jobId = "test-job-15";
+        RouteResponse repaired = new RouteResponse(Arrays.asList(2L, 1L), "1,500 km", null, null);
+        List<RouteResponse> stitched = new ArrayList<>();
+        jobTrackingService.createJob(jobId, 2, route -> {
+            stitched.add(route);
+            return Mono.just(repaired);
+        });
+
+        jobTrackingService.addBatchResult(createBatch(jobId, 0, Arrays.asList(1L), 1.0));
+        assertTrue(stitched.isEmpty());
+        jobTrackingService.addBatchResult(createBatch(jobId, 1, Arrays.asList(2L), 1.0));
+
+        assertEquals(Arrays.asList(1L, 2L), stitched.get(0).getOptimizedCustomerIds());
+        assertSame(repaired, jobTrackingService.getResult(jobId));
+    }
+
+    @Test
+    void shouldKeepTheStitchedRouteWhenSeamRepairFails() {
+        String jobId = "test-job-16";
+        jobTrackingService.createJob(jobId, 2, route -> Mono.error(new RuntimeException("OSRM unavailable")));
+
+        jobTrackingService.addBatchResult(createBatch(jobId, 0, Arrays.asList(1L), 1.0));
+        jobTrackingService.addBatchResult(createBatch(jobId, 1, Arrays.asList(2L), 1.0));
+
+        RouteResponse result = jobTrackingService.getResult(jobId);
+        assertEquals(Arrays.asList(1L, 2L), result.getOptimizedCustomerIds());
+        assertEquals("2,000 km", result.getTotalDistance());
+    }
+
+    @Test
+    void shouldPurgeResultsAfterRetentionWindow() {
+        ReflectionTestUtils.setField(jobTrackingService, "resultRetentionMinutes", 0L);
+        String jobId = "test-job-7";
+        jobTrackingService.createJob(jobId, 1);
+        jobTrackingService.completeJob(jobId, new RouteResponse(Arrays.asList(1L), "1,000 km"));
+
+        jobTrackingService.purgeExpiredResults();
+
+        assertNull(jobTrackingService.getResult(jobId));
+        assertNull(jobTrackingService.getJobStatus(jobId));
+    }
+
+    @Test
+    void shouldKeepRunningJobsWhenPurging() {
+        ReflectionTestUtils.setField(jobTrackingService, "resultRetentionMinutes", 0L);
+        String jobId = "test-job-8";
+        jobTrackingService.createJob(jobId, 2);
+
+        jobTrackingService.purgeExpiredResults();
+
+        assertEquals("processing", jobTrackingService.getJobStatus(jobId).getStatus());
+    }
+
+    @Test
+    void shouldEvictJobsOlderThanTtl() {
+        ReflectionTestUtils.setField(jobTrackingService, "jobTtlMinutes", 0L);
+        String jobId = "test-job-13";
+        jobTrackingService.createJob(jobId, 2);
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+        Mono<RouteResponse> awaited = jobTrackingService.awaitResult(jobId, Duration.ofSeconds(1));
+
+        jobTrackingService.purgeExpiredResults();
+
+        assertEquals("error: Job expired", awaited.block().getStatus());
+        assertNull(jobTrackingService.getJobStatus(jobId));
+        assertEquals(0, jobTrackingService.getLiveJobCount());
+        assertEquals(0, jobTrackingService.getRetainedGeometryBytes());
+    }
+
+    @Test
+    void shouldEvictOldestResultsOverGeometryLimit() {
+        ReflectionTestUtils.setField(jobTrackingService, "maxRetainedGeometryBytes",
+                5 * JobTrackingService.GEOMETRY_POINT_BYTES);
+        jobTrackingService.createJob("old-job", 1);
+        jobTrackingService.addBatchResult(createGeometryBatch("old-job", 0, 1L));
+        assertEquals(3 * JobTrackingService.GEOMETRY_POINT_BYTES, jobTrackingService.getRetainedGeometryBytes());
+
+        jobTrackingService.createJob("new-job", 1);
+        jobTrackingService.addBatchResult(createGeometryBatch("new-job", 0, 2L));
+
+        assertNull(jobTrackingService.getJobStatus("old-job"));
+        assertNotNull(jobTrackingService.getResult("new-job"));
+        assertEquals(3 * JobTrackingService.GEOMETRY_POINT_BYTES, jobTrackingService.getRetainedGeometryBytes());
+    }
+
+    @Test
+    void shouldCompleteAwaitedResultWhenJobFails() {
+        String jobId = "test-job-9";
+        jobTrackingService.createJob(jobId, 1);
+
+        jobTrackingService.failJob(jobId, "OSRM API Error");
+        RouteResponse result = jobTrackingService.awaitResult(jobId, Duration.ofSeconds(1)).block();
+
+        assertEquals("error: OSRM API Error", result.getStatus());
+        assertEquals("error", jobTrackingService.getJobStatus(jobId).getStatus());
+    }
+
+    @Test
+    void shouldStreamContiguousPrefixesAsBatchesArrive() {
+        String jobId = "test-job-10";
+        jobTrackingService.createJob(jobId, 3);
+        List<RouteChunk> chunks = new ArrayList<>();
+        jobTrackingService.streamResults(jobId).subscribe(chunks::add);
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+        assertTrue(chunks.isEmpty());
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 0, 1L));
+        assertEquals(1, chunks.size());
+        RouteChunk prefix = chunks.get(0);
+        assertEquals(0, prefix.getFromBatch());
+        assertEquals(1, prefix.getToBatch());
+        assertEquals(Arrays.asList(1L, 2L), prefix.getOptimizedCustomerIds());
+        assertEquals(5, prefix.getRouteGeometry().size());
+        assertArrayEquals(new int[]{2, 4}, prefix.getCustomerGeometryMapping().get(2L));
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 2, 3L));
+        assertEquals(2, chunks.size());
+        RouteChunk tail = chunks.get(1);
+        assertEquals(5, tail.getGeometryOffset());
+        assertArrayEquals(new int[]{4, 6}, tail.getCustomerGeometryMapping().get(3L));
+
+        RouteResponse result = jobTrackingService.getResult(jobId);
+        assertEquals(7, result.getRouteGeometry().size());
+        assertArrayEquals(result.getCustomerGeometryMapping().get(3L), tail.getCustomerGeometryMapping().get(3L));
+    }
+
+    @Test
+    void shouldSendTheWholeRouteToSubscribersAfterCompletion() {
+        String jobId = "test-job-11";
+        jobTrackingService.createJob(jobId, 2);
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 0, 1L));
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+
+        List<RouteChunk> chunks = jobTrackingService.streamResults(jobId).collectList().block(Duration.ofSeconds(1));
+
+        assertEquals(1, chunks.size());
+        assertEquals(0, chunks.get(0).getFromBatch());
+        assertEquals(1, chunks.get(0).getToBatch());
+        assertEquals(Arrays.asList(1L, 2L), chunks.get(0).getOptimizedCustomerIds());
+        assertEquals(5, chunks.get(0).getRouteGeometry().size());
+        assertNull(jobTrackingService.streamResults("unknown-job"));
+    }
+
+    @Test
+    void shouldSendTheStitchedPrefixToSubscribersJoiningMidJob() {
+        String jobId = "test-job-12";
+        jobTrackingService.createJob(jobId, 3);
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 0, 1L));
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 1, 2L));
+
+        List<RouteChunk> chunks = new ArrayList<>();
+        jobTrackingService.streamResults(jobId).subscribe(chunks::add);
+        assertEquals(1, chunks.size());
+        assertEquals(1, chunks.get(0).getToBatch());
+        assertEquals(5, chunks.get(0).getRouteGeometry().size());
+
+        jobTrackingService.addBatchResult(createGeometryBatch(jobId, 2, 3L));
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(1).getFromBatch());
+        assertEquals(5, chunks.get(1).getGeometryOffset());
+    }
+
+    @Test
+    void shouldDropSubscribersThatFallBehindTheBuffer() {
+        ReflectionTestUtils.setField(jobTrackingService, "streamBufferChunks", 8);
+        String jobId = "test-job-13";
+        jobTrackingService.createJob(jobId, 12);
+        List<RouteChunk> chunks = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        BaseSubscriber<RouteChunk> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // Requests nothing until the test asks, like a client that stopped reading
+            }
+
+            @Override
+            protected void hookOnNext(RouteChunk chunk) {
+                chunks.add(chunk);
+            }
+
+            @Override
+            protected void hookOnError(Throwable error) {
+                errors.add(error);
+            }
+        };
+        jobTrackingService.streamResults(jobId).subscribe(stalled);
+
+        for (int batch = 0; batch < 10; batch++) {
+            jobTrackingService.addBatchResult(createGeometryBatch(jobId, batch, (long) batch + 1));
+        }
+        stalled.requestUnbounded();
+
+        // Only the buffered chunks are delivered, then the subscriber is failed
+        assertEquals(8, chunks.size());
+        assertEquals(1, errors.size());
+        assertTrue(Exceptions.isOverflow(errors.get(0)));
+    }
+
+    private BatchResult createGeometryBatch(String jobId, int batchIndex, Long customerId) {
+        BatchResult batch = createBatch(jobId, batchIndex, Arrays.asList(customerId), 1.0);
+        batch.setRouteGeometry(Arrays.asList(
+                Arrays.asList(29.0, 41.0 + batchIndex),
+                Arrays.asList(29.5, 41.5 + batchIndex),
+                Arrays.asList(29.0, 42.0 + batchIndex)));
+        batch.setCustomerGeometryMapping(Map.of(customerId, new int[]{0, 2}));
+        return batch;
+    }
+
+    private BatchResult createBatch(String jobId, int batchIndex, List<Long> ids, double distanceKm) {
+        BatchResult batch = new BatchResult();
+        batch.setJobId(jobId);
+        batch.setBatchIndex(batchIndex);
+        batch.setOptimizedCustomerIds(ids);
+        batch.setDistanceKm(distanceKm);
+        batch.setSuccess(true);
+        return batch;
+    }
+}
@@ -0,0 +1,50 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.dto.BatchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class KafkaReplyConsumerTest {
+
+    @Mock
+    private JobTrackingService jobTrackingService;
+
+    @InjectMocks
+    private KafkaReplyConsumer kafkaReplyConsumer;
+
+    private BatchResult result;
+
+    @BeforeEach
+    void setUp() {
+        result = new BatchResult("test-job-1", 0, Arrays.asList(1L), 1.0, null, null);
+        when(jobTrackingService.getInstanceId()).thenReturn("node-a");
+    }
+
+    @Test
+    void shouldAddResultsAddressedToThisInstance() {
+        result.setReplyTo("node-a");
+
+        kafkaReplyConsumer.processReply(result);
+
+        verify(jobTrackingService).addBatchResult(result);
+    }
+
+    @Test
+    void shouldIgnoreResultsForOtherInstances() {
+        result.setReplyTo("node-b");
+
+        kafkaReplyConsumer.processReply(result);
+
+        verify(jobTrackingService, never()).addBatchResult(any(BatchResult.class));
+    }
+}
@@ -11,11 +11,14 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
+import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,6 +34,9 @@ class KafkaRouteConsumerTest {
     @Mock
     private JobTrackingService jobTrackingService;
 
+    @Mock
+    private KafkaTemplate<String, BatchResult> batchResultKafkaTemplate;
+
     @Mock
     private Acknowledgment acknowledgment;
 
@@ -62,13 +68,13 @@ class KafkaRouteConsumerTest {
         mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
         mockResponse.setTotalDistance("10,500 km");
 
-        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class))).thenReturn(mockResponse);
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any())).thenReturn(mockResponse);
 
         // Act: Consumer'ın process metodunu çağır
         kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment);
 
         // Assert: Beklenen metotların çağrıldığını ve sonuçların doğru olduğunu doğrula
-        verify(routeService, times(1)).optimizeSingleBatch(eq(41.0), eq(29.0), any(List.class));
+        verify(routeService, times(1)).optimizeSingleBatch(eq(41.0), eq(29.0), any(List.class), isNull());
 
         ArgumentCaptor<BatchResult> batchResultCaptor = ArgumentCaptor.forClass(BatchResult.class);
         verify(jobTrackingService, times(1)).addBatchResult(batchResultCaptor.capture());
@@ -85,14 +91,14 @@ class KafkaRouteConsumerTest {
     @Test
     void shouldHandleExceptionDuringProcessing() {
         // Arrange: RouteService'in hata fırlatmasını sağla
-        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class)))
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any()))
                 .thenThrow(new RuntimeException("OSRM API is down"));
 
         // Act: Consumer'ın process metodunu çağır
         kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment);
 
         // Assert: Hata durumunda beklenen metotların çağrıldığını doğrula
-        verify(routeService, times(1)).optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class));
+        verify(routeService, times(1)).optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any());
 
         ArgumentCaptor<BatchResult> batchResultCaptor = ArgumentCaptor.forClass(BatchResult.class);
         verify(jobTrackingService, times(1)).addBatchResult(batchResultCaptor.capture());
@@ -116,15 +122,133 @@ class KafkaRouteConsumerTest {
         // DÜZELTME: NullPointerException'ı önlemek için boş bir liste ata
         mockResponse.setOptimizedCustomerIds(new ArrayList<>());
 
-        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class))).thenReturn(mockResponse);
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any())).thenReturn(mockResponse);
 
         // Act: Consumer'ın process metodunu çağır
         kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment);
 
         // Assert: RouteService'in, orijinal başlangıç noktası yerine bir önceki batch'in son konumuyla çağrıldığını doğrula
-        verify(routeService, times(1)).optimizeSingleBatch(eq(41.5), eq(29.5), any(List.class));
+        verify(routeService, times(1)).optimizeSingleBatch(eq(41.5), eq(29.5), any(List.class), isNull());
         // TooManyActualInvocations hatasını önlemek için bu doğrulamanın 1 kez çağrıldığından emin ol
         verify(jobTrackingService, times(1)).addBatchResult(any(BatchResult.class));
         verify(acknowledgment, times(1)).acknowledge();
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReplyToOwningInstanceForRemoteJobs() {
+        message.setReplyTo("node-a");
+        RouteResponse mockResponse = new RouteResponse();
+        mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
+        mockResponse.setTotalDistance("2,000 km");
+
+        when(jobTrackingService.getInstanceId()).thenReturn("node-b");
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any())).thenReturn(mockResponse);
+        when(batchResultKafkaTemplate.send(anyString(), anyString(), any(BatchResult.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment);
+
+        ArgumentCaptor<BatchResult> batchResultCaptor = ArgumentCaptor.forClass(BatchResult.class);
+        verify(batchResultKafkaTemplate).send(eq("route-optimization-results"), eq("test-job-1"), batchResultCaptor.capture());
+        assertEquals("node-a", batchResultCaptor.getValue().getReplyTo());
+        verify(jobTrackingService, never()).addBatchResult(any(BatchResult.class));
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void shouldNotAcknowledgeWhenReplyCannotBeSent() {
+        message.setReplyTo("node-a");
+        RouteResponse mockResponse = new RouteResponse();
+        mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
+        mockResponse.setTotalDistance("2,000 km");
+
+        when(jobTrackingService.getInstanceId()).thenReturn("node-b");
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any())).thenReturn(mockResponse);
+        when(batchResultKafkaTemplate.send(anyString(), anyString(), any(BatchResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+
+        assertThrows(RuntimeException.class,
+                () -> kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment));
+
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    void shouldKeepResultLocallyWhenThisInstanceOwnsTheJob() {
+        message.setReplyTo("node-a");
+        RouteResponse mockResponse = new RouteResponse();
+        mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
+        mockResponse.setTotalDistance("2,000 km");
+
+        when(jobTrackingService.getInstanceId()).thenReturn("node-a");
+        when(routeService.optimizeSingleBatch(anyDouble(), anyDouble(), any(List.class), any())).thenReturn(mockResponse);
+
+        kafkaRouteConsumer.processBatch(message, "test-topic", 0, acknowledgment);
+
+        verify(jobTrackingService, times(1)).addBatchResult(any(BatchResult.class));
+        verifyNoInteractions(batchResultKafkaTemplate);
+    }
+
+    @Test
+    void shouldProcessWholePollAndAcknowledgeOnce() {
+        // The requested parallelism reaches the solver for each batch
+        message.setParallelism(2);
+        RouteOptimizationMessage failing = new RouteOptimizationMessage();
+        failing.setJobId("test-job-1");
+        failing.setBatchIndex(1);
+        failing.setStartLatitude(41.0);
+        failing.setStartLongitude(29.0);
+        failing.setPreviousBatchLastLat(41.1);
+        failing.setPreviousBatchLastLng(29.1);
+        failing.setBatch(message.getBatch());
+
+        RouteResponse mockResponse = new RouteResponse();
+        mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
+        mockResponse.setTotalDistance("3,000 km");
+
+        when(routeService.optimizeSingleBatchReactive(eq(41.0), eq(29.0), any(List.class), eq(2)))
+                .thenReturn(Mono.just(mockResponse));
+        when(routeService.optimizeSingleBatchReactive(eq(41.1), eq(29.1), any(List.class), isNull()))
+                .thenReturn(Mono.error(new RuntimeException("OSRM API is down")));
+
+        kafkaRouteConsumer.processBatches(Arrays.asList(message, failing), acknowledgment);
+
+        ArgumentCaptor<BatchResult> batchResultCaptor = ArgumentCaptor.forClass(BatchResult.class);
+        verify(jobTrackingService, times(2)).addBatchResult(batchResultCaptor.capture());
+        BatchResult success = batchResultCaptor.getAllValues().stream()
+                .filter(result -> result.getBatchIndex() == 0).findFirst().orElseThrow();
+        BatchResult failure = batchResultCaptor.getAllValues().stream()
+                .filter(result -> result.getBatchIndex() == 1).findFirst().orElseThrow();
+        assertEquals(3.0, success.getDistanceKm());
+        assertFalse(failure.isSuccess());
+        assertEquals("OSRM API is down", failure.getErrorMessage());
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void shouldNackPollFromFirstUndeliveredReply() {
+        RouteOptimizationMessage remote = new RouteOptimizationMessage();
+        remote.setJobId("test-job-2");
+        remote.setBatchIndex(0);
+        remote.setStartLatitude(41.5);
+        remote.setStartLongitude(29.5);
+        remote.setBatch(message.getBatch());
+        remote.setReplyTo("node-a");
+
+        RouteResponse mockResponse = new RouteResponse();
+        mockResponse.setOptimizedCustomerIds(Arrays.asList(1L));
+        mockResponse.setTotalDistance("3,000 km");
+
+        when(jobTrackingService.getInstanceId()).thenReturn("node-b");
+        when(routeService.optimizeSingleBatchReactive(anyDouble(), anyDouble(), any(List.class), any()))
+                .thenReturn(Mono.just(mockResponse));
+        when(batchResultKafkaTemplate.send(anyString(), anyString(), any(BatchResult.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+
+        kafkaRouteConsumer.processBatches(Arrays.asList(message, remote), acknowledgment);
+
+        verify(jobTrackingService, times(1)).addBatchResult(any(BatchResult.class));
+        verify(acknowledgment, never()).acknowledge();
+        verify(acknowledgment, times(1)).nack(eq(1), any());
+    }
+}
@@ -2,15 +2,23 @@ package com.barkosoft.router.service;
 
 import com.barkosoft.router.dto.Customer;
 import com.barkosoft.router.dto.RouteOptimizationMessage;
+import com.barkosoft.router.dto.RouteResponse;
+import org.apache.kafka.common.PartitionInfo;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -25,9 +33,18 @@ class KafkaRouteProducerTest {
     @Mock
     private JobTrackingService jobTrackingService;
 
+    @Mock
+    private RouteService routeService;
+
     @InjectMocks
     private KafkaRouteProducer kafkaRouteProducer;
 
+    @BeforeEach
+    void setUp() {
+        lenient().when(kafkaTemplate.send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+    }
+
     @Test
     void shouldSubmitOptimizationJob() {
         List<Customer> customers = createCustomerList(10);
@@ -35,10 +52,19 @@ class KafkaRouteProducerTest {
         String jobId = kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, customers);
 
         assertNotNull(jobId);
-        verify(jobTrackingService).createJob(eq(jobId), eq(1));
+        verify(jobTrackingService).createJob(eq(jobId), eq(1), any());
         verify(kafkaTemplate, atLeastOnce()).send(eq("route-optimization-requests"), anyInt(), anyString(), any(RouteOptimizationMessage.class));
     }
 
+    @Test
+    void shouldSendRequestedParallelismWithEveryBatch() {
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200), null, 3);
+
+        ArgumentCaptor<RouteOptimizationMessage> messages = ArgumentCaptor.forClass(RouteOptimizationMessage.class);
+        verify(kafkaTemplate, times(3)).send(anyString(), anyInt(), anyString(), messages.capture());
+        messages.getAllValues().forEach(message -> assertEquals(3, message.getParallelism()));
+    }
+
     @Test
     void shouldCreateMultipleBatchesForLargeDataset() {
         List<Customer> customers = createCustomerList(200);
@@ -46,10 +72,28 @@ class KafkaRouteProducerTest {
         String jobId = kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, customers);
 
         assertNotNull(jobId);
-        verify(jobTrackingService).createJob(eq(jobId), eq(3)); // 200/95 = ~3 batches
+        verify(jobTrackingService).createJob(eq(jobId), eq(3), any()); // 200/95 = ~3 batches
         verify(kafkaTemplate, times(3)).send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class));
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRegisterSeamRepairOverTheSentBatches() {
+        String jobId = kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200));
+
+        ArgumentCaptor<Function<RouteResponse, Mono<RouteResponse>>> seamRepair = ArgumentCaptor.forClass(Function.class);
+        verify(jobTrackingService).createJob(eq(jobId), eq(3), seamRepair.capture());
+        ArgumentCaptor<RouteOptimizationMessage> messages = ArgumentCaptor.forClass(RouteOptimizationMessage.class);
+        verify(kafkaTemplate, times(3)).send(anyString(), anyInt(), anyString(), messages.capture());
+
+        RouteResponse stitched = new RouteResponse();
+        seamRepair.getValue().apply(stitched);
+
+        List<List<Customer>> sentBatches = messages.getAllValues().stream()
+                .map(RouteOptimizationMessage::getBatch).toList();
+        verify(routeService).repairStitchedRoute(41.0082, 28.9784, sentBatches, stitched);
+    }
+
     @Test
     void shouldSortCustomersByNearestNeighbor() {
         List<Customer> customers = createScatteredCustomerList();
@@ -60,6 +104,79 @@ class KafkaRouteProducerTest {
         verify(kafkaTemplate, atLeastOnce()).send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class));
     }
 
+    @Test
+    void shouldFailJobOnceWhenBatchesCannotBeProduced() {
+        when(kafkaTemplate.send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Broker unavailable")));
+
+        String jobId = kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200));
+
+        // No application-level resend: the producer's own retries have already run out
+        verify(kafkaTemplate, times(3)).send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class));
+        verify(jobTrackingService, times(1)).failJob(jobId, "Failed to send batches to Kafka: Broker unavailable");
+    }
+
+    @Test
+    void shouldFailJobWhenSendThrows() {
+        when(kafkaTemplate.send(anyString(), anyInt(), anyString(), any(RouteOptimizationMessage.class)))
+                .thenReturn(CompletableFuture.completedFuture(null))
+                .thenThrow(new RuntimeException("Metadata not available"));
+
+        assertThrows(RuntimeException.class,
+                () -> kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200)));
+
+        ArgumentCaptor<String> jobId = ArgumentCaptor.forClass(String.class);
+        verify(jobTrackingService).createJob(jobId.capture(), eq(3), any());
+        verify(jobTrackingService, times(1)).failJob(jobId.getValue(), "Failed to send batches to Kafka: Metadata not available");
+    }
+
+    @Test
+    void shouldNotFailJobWhenAllBatchesAreAcknowledged() {
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200));
+
+        verify(jobTrackingService, never()).failJob(anyString(), anyString());
+    }
+
+    @Test
+    void shouldSpreadBatchesOverLivePartitions() {
+        List<PartitionInfo> partitions = new java.util.ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            partitions.add(new PartitionInfo("route-optimization-requests", i, null, null, null));
+        }
+        when(kafkaTemplate.partitionsFor("route-optimization-requests")).thenReturn(partitions);
+
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200));
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(200));
+
+        ArgumentCaptor<Integer> partitionCaptor = ArgumentCaptor.forClass(Integer.class);
+        verify(kafkaTemplate, times(6)).send(anyString(), partitionCaptor.capture(), anyString(), any(RouteOptimizationMessage.class));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 0, 1), partitionCaptor.getAllValues());
+    }
+
+    @Test
+    void shouldFallBackToConfiguredPartitionCountWithoutMetadata() {
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(1000));
+
+        ArgumentCaptor<Integer> partitionCaptor = ArgumentCaptor.forClass(Integer.class);
+        verify(kafkaTemplate, times(11)).send(anyString(), partitionCaptor.capture(), anyString(), any(RouteOptimizationMessage.class));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 0), partitionCaptor.getAllValues());
+    }
+
+    @Test
+    void shouldKeyBatchesOfOneRegionToTheSamePartition() {
+        ReflectionTestUtils.setField(kafkaRouteProducer, "partitioningStrategy", "geohash");
+
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(10));
+        kafkaRouteProducer.submitOptimizationJob(41.0082, 28.9784, createCustomerList(20));
+
+        ArgumentCaptor<Integer> partitionCaptor = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<String> keyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(kafkaTemplate, times(2)).send(anyString(), partitionCaptor.capture(), keyCaptor.capture(), any(RouteOptimizationMessage.class));
+        assertEquals(Arrays.asList("sxk9", "sxk9"), keyCaptor.getAllValues());
+        assertEquals(partitionCaptor.getAllValues().get(0), partitionCaptor.getAllValues().get(1));
+    }
+
     private List<Customer> createCustomerList(int size) {
         List<Customer> customers = new java.util.ArrayList<>();
         for (int i = 0; i < size; i++) {
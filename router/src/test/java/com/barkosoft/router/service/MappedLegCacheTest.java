@@ -0,0 +1,160 @@
+package com.barkosoft.router.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedLegCacheTest {
+
+    private static final long WEEK = 7 * 24 * 60L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldStoreDirectedLegs() throws Exception {
+        MappedLegCache cache = MappedLegCache.open(directory.resolve("legs.bin"), 1024, 5, WEEK);
+
+        assertTrue(cache.put(41.0, 29.0, 41.01, 29.02, 2.5f));
+
+        assertEquals(2.5f, cache.get(41.0, 29.0, 41.01, 29.02));
+        // Below the precision is the same point, the way back is a different leg
+        assertEquals(2.5f, cache.get(41.000001, 29.0, 41.01, 29.020002));
+        assertTrue(Float.isNaN(cache.get(41.01, 29.02, 41.0, 29.0)));
+    }
+
+    @Test
+    void shouldSurviveReopenAndBeSharedBetweenMappings() throws Exception {
+        Path file = directory.resolve("legs.bin");
+        MappedLegCache first = MappedLegCache.open(file, 1024, 5, WEEK);
+        MappedLegCache second = MappedLegCache.open(file, 1024, 5, WEEK);
+
+        first.put(41.0, 29.0, 41.01, 29.02, 2.5f);
+        assertEquals(2.5f, second.get(41.0, 29.0, 41.01, 29.02));
+
+        second.put(41.0, 29.0, 41.01, 29.02, 2.7f);
+        assertEquals(2.7f, MappedLegCache.open(file, 1024, 5, WEEK).get(41.0, 29.0, 41.01, 29.02));
+    }
+
+    @Test
+    void shouldResetFileWithOtherLayout() throws Exception {
+        Path file = directory.resolve("legs.bin");
+        MappedLegCache.open(file, 1024, 5, WEEK).put(41.0, 29.0, 41.01, 29.02, 2.5f);
+
+        assertTrue(Float.isNaN(MappedLegCache.open(file, 2048, 5, WEEK).get(41.0, 29.0, 41.01, 29.02)));
+    }
+
+    @Test
+    void shouldIgnoreExpiredLegs() throws Exception {
+        MappedLegCache cache = MappedLegCache.open(directory.resolve("legs.bin"), 1024, 5, -1);
+        cache.put(41.0, 29.0, 41.01, 29.02, 2.5f);
+
+        assertTrue(Float.isNaN(cache.get(41.0, 29.0, 41.01, 29.02)));
+    }
+
+    @Test
+    void shouldKeepEveryLegFromConcurrentWriters() throws Exception {
+        MappedLegCache cache = MappedLegCache.open(directory.resolve("legs.bin"), 1 << 14, 5, WEEK);
+        AtomicInteger dropped = new AtomicInteger();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    // Every writer stores the same legs, so slots are contended
+                    if (!cache.put(41.0, 29.0 + i * 0.001, 41.5, 29.5, i)) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(0, dropped.get());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, cache.get(41.0, 29.0 + i * 0.001, 41.5, 29.5));
+        }
+    }
+
+    @Test
+    void shouldReclaimSlotsLeftBehindByADeadWriter() throws Exception {
+        Path file = directory.resolve("legs.bin");
+        MappedLegCache cache = MappedLegCache.open(file, 1024, 5, WEEK);
+        cache.put(41.0, 29.0, 41.01, 29.02, 2.5f);
+
+        // Leave the slot the way a writer that died mid-update would: claimed, long ago
+        assertEquals(1, abandonUsedSlots(file));
+
+        assertTrue(Float.isNaN(cache.get(41.0, 29.0, 41.01, 29.02)));
+        assertTrue(cache.put(41.0, 29.0, 41.01, 29.02, 2.7f));
+        assertEquals(2.7f, cache.get(41.0, 29.0, 41.01, 29.02));
+        // The abandoned slot was taken over rather than left claimed forever
+        assertEquals(0, countClaimedSlots(file));
+    }
+
+    // Marks every used slot as claimed by a writer in the first minute of the epoch; returns how many
+    private static int abandonUsedSlots(Path file) throws Exception {
+        return scanVersions(file, true);
+    }
+
+    private static int countClaimedSlots(Path file) throws Exception {
+        return scanVersions(file, false);
+    }
+
+    private static int scanVersions(Path file, boolean abandon) throws Exception {
+        int matched = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer version = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            for (long offset = 64 + 24; offset < channel.size(); offset += 32) {
+                version.clear();
+                channel.read(version, offset);
+                int current = version.getInt(0);
+                if (abandon ? current != 0 : (current & 1) != 0) {
+                    matched++;
+                    if (abandon) {
+                        version.putInt(0, 1 << 1 | 1).rewind();
+                        channel.write(version, offset);
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    @Test
+    void shouldNotWipeEntriesWhenOpenedConcurrently() throws Exception {
+        Path file = directory.resolve("legs.bin");
+        List<Thread> openers = new ArrayList<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < 8; t++) {
+            int opener = t;
+            openers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    MappedLegCache.open(file, 1024, 5, WEEK).put(41.0, 29.0 + opener, 41.5, 29.5, opener);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread opener : openers) {
+            opener.join();
+        }
+
+        assertEquals(0, failures.get());
+        MappedLegCache cache = MappedLegCache.open(file, 1024, 5, WEEK);
+        for (int t = 0; t < 8; t++) {
+            assertEquals(t, cache.get(41.0, 29.0 + t, 41.5, 29.5));
+        }
+    }
+}
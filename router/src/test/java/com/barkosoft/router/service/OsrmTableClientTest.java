@@ -0,0 +1,126 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.algorithm.DistanceMatrix;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OsrmTableClientTest {
+
+    private final List<Integer> coordinatesPerRequest = new ArrayList<>();
+
+    @Test
+    void shouldAssembleMatrixFromTiles() {
+        OsrmTableClient client = new OsrmTableClient(createTableStub(false));
+        double[] lats = new double[7];
+        double[] lngs = new double[7];
+        for (int i = 0; i < 7; i++) {
+            lats[i] = 41.0;
+            lngs[i] = i;
+        }
+
+        DistanceMatrix matrix = client.fetchMatrix("http://osrm.test", lats, lngs, 4, 3, null).block();
+
+        assertNotNull(matrix);
+        assertEquals(7, matrix.size());
+        assertFalse(matrix.isSymmetric());
+        for (int i = 0; i < 7; i++) {
+            for (int j = 0; j < 7; j++) {
+                assertEquals((i * 10 + j) / 1000.0, matrix.get(i, j), 1e-6);
+            }
+        }
+        // Blocks of 2 points: 4 x 4 tiles, none over the 4-coordinate limit
+        assertEquals(16, coordinatesPerRequest.size());
+        assertTrue(coordinatesPerRequest.stream().allMatch(count -> count <= 4));
+    }
+
+    @Test
+    void shouldServeKnownTilesFromLegCache(@TempDir Path directory) throws Exception {
+        OsrmTableClient client = new OsrmTableClient(createTableStub(false));
+        MappedLegCache legCache = MappedLegCache.open(directory.resolve("legs.bin"), 1024, 5, 60);
+        double[] lats = {41.0, 41.0, 41.0, 41.0, 41.0};
+        double[] lngs = {0, 1, 2, 3, 4};
+
+        DistanceMatrix fetched = client.fetchMatrix("http://osrm.test", lats, lngs, 4, 2, legCache).block();
+        int requests = coordinatesPerRequest.size();
+        DistanceMatrix cached = client.fetchMatrix("http://osrm.test", lats, lngs, 4, 2, legCache).block();
+
+        // 3 x 3 tiles, but the last diagonal one is a single point and needs no request
+        assertEquals(8, requests);
+        assertEquals(requests, coordinatesPerRequest.size());
+        // Self-legs are not cached and come back as 0, as OSRM reports them
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                assertEquals(i == j ? 0f : fetched.get(i, j), cached.get(i, j));
+            }
+        }
+    }
+
+    @Test
+    void shouldPenalizeUnroutablePairs() {
+        OsrmTableClient client = new OsrmTableClient(createTableStub(true));
+
+        DistanceMatrix matrix = client.fetchMatrix("http://osrm.test",
+                new double[]{41.0, 41.0}, new double[]{0, 1}, 100, 1, null).block();
+
+        assertNotNull(matrix);
+        assertEquals(0.001, matrix.get(0, 1), 1e-6);
+        assertEquals(OsrmTableClient.UNREACHABLE_KM, matrix.get(1, 0));
+    }
+
+    // Answers each pair with (10 * source + destination) metres, recovering the point index from its longitude
+    private WebClient createTableStub(boolean unroutableBackwards) {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    int[] points = Arrays.stream(path.substring(path.lastIndexOf('/') + 1).split(";"))
+                            .mapToInt(coordinate -> (int) Math.round(Double.parseDouble(coordinate.split(",")[0])))
+                            .toArray();
+                    coordinatesPerRequest.add(points.length);
+                    String query = request.url().getQuery();
+                    int[] sources = indices(query, "sources", points.length);
+                    int[] destinations = indices(query, "destinations", points.length);
+
+                    StringBuilder body = new StringBuilder("{\"code\":\"Ok\",\"distances\":[");
+                    for (int i = 0; i < sources.length; i++) {
+                        body.append(i > 0 ? ",[" : "[");
+                        for (int j = 0; j < destinations.length; j++) {
+                            int from = points[sources[i]];
+                            int to = points[destinations[j]];
+                            body.append(j > 0 ? "," : "")
+                                    .append(unroutableBackwards && to < from ? "null" : String.valueOf(from * 10 + to));
+                        }
+                        body.append("]");
+                    }
+                    body.append("]}");
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body.toString())
+                            .build());
+                })
+                .build();
+    }
+
+    private static int[] indices(String query, String name, int coordinates) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                return Arrays.stream(parameter.substring(name.length() + 1).split(";"))
+                        .mapToInt(Integer::parseInt).toArray();
+            }
+        }
+        return IntStream.range(0, coordinates).toArray();
+    }
+}
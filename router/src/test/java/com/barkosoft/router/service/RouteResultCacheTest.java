@@ -0,0 +1,129 @@
+package com.barkosoft.router.service;
+
+import com.barkosoft.router.dto.Customer;
+import com.barkosoft.router.dto.RouteResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteResultCacheTest {
+
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final long MB = 1024 * 1024;
+
+    private final RouteResultCache cache = new RouteResultCache();
+
+    @Test
+    void shouldHitForReorderedBatchWithNewIds() {
+        List<Customer> monday = Arrays.asList(
+                createCustomer(1L, 41.01, 29.01),
+                createCustomer(2L, 41.02, 29.02),
+                createCustomer(3L, 41.03, 29.03));
+        RouteResultCache.Key mondayKey = RouteResultCache.key(41.0, 29.0, monday, 5);
+        cache.put(mondayKey, monday, createResponse(Arrays.asList(3L, 1L, 2L)), 10, MB, DAY);
+
+        // Same stops the next day, listed differently, under new ids and with GPS jitter below the precision
+        List<Customer> tuesday = Arrays.asList(
+                createCustomer(20L, 41.020001, 29.02),
+                createCustomer(30L, 41.03, 29.03),
+                createCustomer(10L, 41.01, 29.010002));
+        RouteResponse cached = cache.get(RouteResultCache.key(41.0, 29.0, tuesday, 5), tuesday, DAY);
+
+        assertNotNull(cached);
+        assertEquals(Arrays.asList(30L, 10L, 20L), cached.getOptimizedCustomerIds());
+        assertEquals("1,500 km", cached.getTotalDistance());
+        assertArrayEquals(new int[]{0, 1}, cached.getCustomerGeometryMapping().get(30L));
+        assertArrayEquals(new int[]{2, 3}, cached.getCustomerGeometryMapping().get(10L));
+        assertArrayEquals(new int[]{4, 5}, cached.getCustomerGeometryMapping().get(20L));
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void shouldMissForOtherStartOrStops() {
+        List<Customer> customers = Arrays.asList(createCustomer(1L, 41.01, 29.01), createCustomer(2L, 41.02, 29.02));
+        cache.put(RouteResultCache.key(41.0, 29.0, customers, 5), customers, createResponse(Arrays.asList(1L, 2L)), 10, MB, DAY);
+
+        assertNull(cache.get(RouteResultCache.key(41.001, 29.0, customers, 5), customers, DAY));
+        List<Customer> moved = Arrays.asList(createCustomer(1L, 41.01, 29.01), createCustomer(2L, 41.02, 29.03));
+        assertNull(cache.get(RouteResultCache.key(41.0, 29.0, moved, 5), moved, DAY));
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() throws InterruptedException {
+        List<Customer> customers = Arrays.asList(createCustomer(1L, 41.01, 29.01), createCustomer(2L, 41.02, 29.02));
+        RouteResultCache.Key key = RouteResultCache.key(41.0, 29.0, customers, 5);
+        cache.put(key, customers, createResponse(Arrays.asList(1L, 2L)), 10, MB, DAY);
+        Thread.sleep(5);
+
+        assertNull(cache.get(key, customers, 1));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.evictions());
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsed() {
+        List<Customer> a = List.of(createCustomer(1L, 41.01, 29.01), createCustomer(2L, 41.02, 29.02));
+        List<Customer> b = List.of(createCustomer(1L, 41.11, 29.11), createCustomer(2L, 41.12, 29.12));
+        List<Customer> c = List.of(createCustomer(1L, 41.21, 29.21), createCustomer(2L, 41.22, 29.22));
+        RouteResultCache.Key keyA = RouteResultCache.key(41.0, 29.0, a, 5);
+        RouteResultCache.Key keyB = RouteResultCache.key(41.0, 29.0, b, 5);
+        RouteResultCache.Key keyC = RouteResultCache.key(41.0, 29.0, c, 5);
+
+        cache.put(keyA, a, createResponse(Arrays.asList(1L, 2L)), 2, MB, DAY);
+        cache.put(keyB, b, createResponse(Arrays.asList(1L, 2L)), 2, MB, DAY);
+        assertNotNull(cache.get(keyA, a, DAY));
+        cache.put(keyC, c, createResponse(Arrays.asList(1L, 2L)), 2, MB, DAY);
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(keyA, a, DAY));
+        assertNull(cache.get(keyB, b, DAY));
+        assertNotNull(cache.get(keyC, c, DAY));
+    }
+
+    @Test
+    void shouldEvictToStayWithinRetainedBytes() {
+        List<Customer> a = List.of(createCustomer(1L, 41.01, 29.01), createCustomer(2L, 41.02, 29.02));
+        List<Customer> b = List.of(createCustomer(1L, 41.11, 29.11), createCustomer(2L, 41.12, 29.12));
+        RouteResultCache.Key keyA = RouteResultCache.key(41.0, 29.0, a, 5);
+        RouteResultCache.Key keyB = RouteResultCache.key(41.0, 29.0, b, 5);
+        // Two lng/lat points plus two customers
+        long entryBytes = 2 * 2 * 8 + 2 * RouteResultCache.CUSTOMER_BYTES;
+
+        cache.put(keyA, a, createResponse(Arrays.asList(1L, 2L)), 10, entryBytes, DAY);
+        assertEquals(entryBytes, cache.retainedBytes());
+        cache.put(keyB, b, createResponse(Arrays.asList(1L, 2L)), 10, entryBytes, DAY);
+
+        assertEquals(1, cache.size());
+        assertEquals(entryBytes, cache.retainedBytes());
+        assertNull(cache.get(keyA, a, DAY));
+        RouteResponse cached = cache.get(keyB, b, DAY);
+        assertEquals(List.of(List.of(29.0, 41.0), List.of(29.01, 41.01)), cached.getRouteGeometry());
+
+        // A single result over the limit is not cached at all
+        cache.put(keyA, a, createResponse(Arrays.asList(1L, 2L)), 10, entryBytes - 1, DAY);
+        assertNull(cache.get(keyA, a, DAY));
+        assertEquals(1, cache.size());
+    }
+
+    private RouteResponse createResponse(List<Long> ids) {
+        Map<Long, int[]> mapping = new HashMap<>();
+        for (int k = 0; k < ids.size(); k++) {
+            mapping.put(ids.get(k), new int[]{2 * k, 2 * k + 1});
+        }
+        return new RouteResponse(ids, "1,500 km", List.of(List.of(29.0, 41.0), List.of(29.01, 41.01)), mapping);
+    }
+
+    private Customer createCustomer(Long id, double lat, double lng) {
+        Customer customer = new Customer();
+        customer.setMyId(id);
+        customer.setLatitude(lat);
+        customer.setLongitude(lng);
+        return customer;
+    }
+}
@@ -1,13 +1,26 @@
 package com.barkosoft.router.service;
 
+import com.barkosoft.router.algorithm.GeoPoints;
 import com.barkosoft.router.dto.Customer;
 import com.barkosoft.router.dto.RouteResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -70,6 +83,392 @@ class RouteServiceTest {
         assertTrue(testDistance.matches("\\d+,\\d{3} km"));
     }
 
+    @Test
+    void shouldOptimizeSingleBatchReactively() {
+        AtomicInteger tripCalls = new AtomicInteger();
+        RouteService stubbedService = createStubbedService(tripCalls);
+
+        RouteResponse result = stubbedService.optimizeSingleBatchReactive(41.0082, 28.9784, customers).block();
+
+        assertNotNull(result);
+        assertEquals(1, tripCalls.get());
+        assertEquals(Arrays.asList(2L, 1L), result.getOptimizedCustomerIds());
+        assertEquals("1,500 km", result.getTotalDistance());
+        assertEquals(3, result.getRouteGeometry().size());
+        assertArrayEquals(new int[]{0, 1}, result.getCustomerGeometryMapping().get(2L));
+        assertArrayEquals(new int[]{1, 2}, result.getCustomerGeometryMapping().get(1L));
+    }
+
+    @Test
+    void shouldSolveLocallyWithoutTripService() {
+        AtomicInteger routeCalls = new AtomicInteger();
+        RouteService localService = createReversingService(routeCalls);
+        ReflectionTestUtils.setField(localService, "solver", "local");
+        List<Customer> gridCustomers = createGridCustomerList(6, 5);
+
+        RouteResponse result = localService.optimizeSingleBatchReactive(41.0, 29.0, gridCustomers).block();
+
+        assertNotNull(result);
+        // The reversing stub would answer /trip with a backwards route; only /table and /route were called
+        assertEquals(1, routeCalls.get());
+        assertEquals(30, new HashSet<>(result.getOptimizedCustomerIds()).size());
+        assertEquals(0L, result.getOptimizedCustomerIds().get(0));
+        assertEquals(31, result.getRouteGeometry().size());
+    }
+
+    @Test
+    void shouldSolveWithTheParallelismRequestedPerCall() {
+        AtomicInteger routeCalls = new AtomicInteger();
+        RouteService localService = createReversingService(routeCalls);
+        ReflectionTestUtils.setField(localService, "solver", "local");
+        ReflectionTestUtils.setField(localService, "solverParallelism", 2);
+        List<Customer> gridCustomers = createGridCustomerList(6, 5);
+
+        // Asks for more cores than configured, so the portfolio is capped at two workers
+        RouteResponse result = localService.optimizeRouteReactive(41.0, 29.0, gridCustomers, null, 8).block();
+
+        assertNotNull(result);
+        assertEquals(1, routeCalls.get());
+        assertEquals(30, new HashSet<>(result.getOptimizedCustomerIds()).size());
+        assertEquals(0L, result.getOptimizedCustomerIds().get(0));
+    }
+
+    @Test
+    void shouldSolveSmallBatchesExactlyWithOneTableCall() {
+        AtomicInteger routeCalls = new AtomicInteger();
+        AtomicInteger tableCalls = new AtomicInteger();
+        RouteService service = createReversingService(routeCalls, tableCalls);
+        List<Customer> gridCustomers = createGridCustomerList(4, 3);
+
+        RouteResponse result = service.optimizeSingleBatchReactive(41.0, 29.0, gridCustomers).block();
+
+        assertNotNull(result);
+        assertEquals(1, tableCalls.get());
+        assertEquals(1, routeCalls.get());
+        // Snake through the rows: 0..3, then 7..4, then 8..11
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 7L, 6L, 5L, 4L, 8L, 9L, 10L, 11L),
+                result.getOptimizedCustomerIds());
+    }
+
+    @Test
+    void shouldSolveBeyondBatchSizeOnTiledRoadMatrix() {
+        AtomicInteger routeCalls = new AtomicInteger();
+        AtomicInteger tableCalls = new AtomicInteger();
+        RouteService localService = createReversingService(routeCalls, tableCalls);
+        ReflectionTestUtils.setField(localService, "solver", "local");
+        List<Customer> gridCustomers = createGridCustomerList(12, 10);
+
+        RouteResponse result = localService.optimizeRouteReactive(41.0, 29.0, gridCustomers).block();
+
+        assertNotNull(result);
+        // 121 points in blocks of 50: 3 x 3 tiles, then one route for all 120 stops
+        assertEquals(9, tableCalls.get());
+        assertEquals(1, routeCalls.get());
+        assertEquals(120, new HashSet<>(result.getOptimizedCustomerIds()).size());
+        assertEquals(121, result.getRouteGeometry().size());
+    }
+
+    @Test
+    void shouldReportOnePieceSolvesOnlyForTheLocalSolver() {
+        assertFalse(routeService.solvesInOnePiece(120));
+
+        ReflectionTestUtils.setField(routeService, "solver", "local");
+
+        assertTrue(routeService.solvesInOnePiece(400));
+        assertTrue(routeService.solvesInOnePiece(20000));
+        assertFalse(routeService.solvesInOnePiece(20001));
+    }
+
+    @Test
+    void shouldSolveLargeRoutesOnCandidateGraphInOnePiece() {
+        AtomicInteger routeCalls = new AtomicInteger();
+        AtomicInteger tableCalls = new AtomicInteger();
+        RouteService localService = createReversingService(routeCalls, tableCalls);
+        ReflectionTestUtils.setField(localService, "solver", "local");
+        ReflectionTestUtils.setField(localService, "solverMaxStops", 50);
+        List<Customer> gridCustomers = createGridCustomerList(12, 10);
+
+        RouteResponse result = localService.optimizeRouteReactive(41.0, 29.0, gridCustomers).block();
+
+        assertNotNull(result);
+        // No matrix is fetched; geometry comes in pieces of 50, 50 and 20 stops
+        assertEquals(0, tableCalls.get());
+        assertEquals(3, routeCalls.get());
+        assertEquals(120, new HashSet<>(result.getOptimizedCustomerIds()).size());
+        assertEquals(121, result.getRouteGeometry().size());
+        // Grid spacing is about 0.17 km by 0.22 km, so a good tour stays close to 119 short hops
+        assertTrue(distanceOf(result) < 25.0);
+    }
+
+    @Test
+    void shouldAnswerRepeatedBatchFromCache() {
+        AtomicInteger tripCalls = new AtomicInteger();
+        RouteService stubbedService = createStubbedService(tripCalls);
+
+        RouteResponse first = stubbedService.optimizeSingleBatchReactive(41.0082, 28.9784, customers).block();
+        RouteResponse second = stubbedService.optimizeSingleBatchReactive(41.0082, 28.9784,
+                Arrays.asList(customers.get(1), customers.get(0))).block();
+
+        assertEquals(1, tripCalls.get());
+        assertEquals(first.getOptimizedCustomerIds(), second.getOptimizedCustomerIds());
+        assertEquals(first.getTotalDistance(), second.getTotalDistance());
+        assertEquals(1, stubbedService.getResultCache().hits());
+    }
+
+    @Test
+    void shouldFailReactivelyWhenOsrmIsUnavailable() {
+        WebClient failingClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.error(new IllegalStateException("connection refused")))
+                .build();
+        RouteService failingService = new RouteService(failingClient);
+        ReflectionTestUtils.setField(failingService, "osrmBaseUrl", "http://osrm.test");
+        ReflectionTestUtils.setField(failingService, "exactMaxStops", 0);
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+                () -> failingService.optimizeSingleBatch(41.0082, 28.9784, customers));
+
+        assertTrue(error.getMessage().startsWith("Route optimization failed"));
+    }
+
+    @Test
+    void shouldRunBatchesConcurrentlyAndKeepOrder() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        RouteService echoService = createEchoService(inFlight, maxInFlight);
+        List<Customer> largeCustomerList = createLargeCustomerList(120);
+
+        RouteResponse result = echoService.optimizeRouteReactive(41.0, 29.0, largeCustomerList).block();
+
+        assertNotNull(result);
+        assertEquals(120, result.getOptimizedCustomerIds().size());
+        for (int i = 0; i < 120; i++) {
+            assertEquals((long) i, result.getOptimizedCustomerIds().get(i));
+        }
+        // 3 batches of 40 stops, each batch 1 km per stop; seams share a point
+        assertEquals("120,000 km", result.getTotalDistance());
+        assertEquals(121, result.getRouteGeometry().size());
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void shouldRepairDetoursAtBatchSeams() {
+        List<Customer> largeCustomerList = createGridCustomerList(12, 10);
+        RouteService plain = createReversingService(new AtomicInteger());
+        ReflectionTestUtils.setField(plain, "seamRepairEnabled", false);
+        AtomicInteger routeCalls = new AtomicInteger();
+        RouteService repairing = createReversingService(routeCalls);
+
+        RouteResponse before = plain.optimizeRouteReactive(41.0, 29.0, largeCustomerList).block();
+        RouteResponse after = repairing.optimizeRouteReactive(41.0, 29.0, largeCustomerList).block();
+
+        assertNotNull(before);
+        assertNotNull(after);
+        assertEquals(new HashSet<>(before.getOptimizedCustomerIds()), new HashSet<>(after.getOptimizedCustomerIds()));
+        assertTrue(distanceOf(after) < distanceOf(before));
+        // One route per batch, then an old and a new route per repaired seam window only
+        assertTrue(routeCalls.get() > 3);
+        assertTrue(routeCalls.get() <= 3 + 2 * 2);
+
+        // Mapping still points into the patched geometry, leg after leg
+        int previousEnd = 0;
+        for (Long id : after.getOptimizedCustomerIds()) {
+            int[] range = after.getCustomerGeometryMapping().get(id);
+            assertEquals(previousEnd, range[0]);
+            previousEnd = range[1];
+        }
+        assertEquals(after.getRouteGeometry().size() - 1, previousEnd);
+    }
+
+    @Test
+    void shouldRepairSeamsOfRoutesStitchedFromKafkaBatches() {
+        List<Customer> largeCustomerList = createGridCustomerList(12, 10);
+        RouteService plain = createReversingService(new AtomicInteger());
+        ReflectionTestUtils.setField(plain, "seamRepairEnabled", false);
+        RouteService repairing = createReversingService(new AtomicInteger());
+
+        // The stitched route visits its 50-stop batches one after the other
+        RouteResponse stitched = plain.optimizeRouteReactive(41.0, 29.0, largeCustomerList).block();
+        Map<Long, Customer> byId = new HashMap<>();
+        largeCustomerList.forEach(customer -> byId.put(customer.getMyId(), customer));
+        List<List<Customer>> batches = new ArrayList<>();
+        List<Long> ids = stitched.getOptimizedCustomerIds();
+        for (int from = 0; from < ids.size(); from += 50) {
+            batches.add(ids.subList(from, Math.min(ids.size(), from + 50)).stream().map(byId::get).toList());
+        }
+        RouteResponse repaired = repairing.repairStitchedRoute(41.0, 29.0, batches, stitched).block();
+
+        assertNotNull(repaired);
+        assertEquals(new HashSet<>(stitched.getOptimizedCustomerIds()), new HashSet<>(repaired.getOptimizedCustomerIds()));
+        assertTrue(distanceOf(repaired) < distanceOf(stitched));
+
+        // A failed batch leaves its stops out, so the seams are unknown
+        RouteResponse partial = new RouteResponse(stitched.getOptimizedCustomerIds().subList(0, 50),
+                stitched.getTotalDistance(), stitched.getRouteGeometry(), stitched.getCustomerGeometryMapping());
+        assertSame(partial, repairing.repairStitchedRoute(41.0, 29.0, batches, partial).block());
+    }
+
+    private double distanceOf(RouteResponse response) {
+        return Double.parseDouble(response.getTotalDistance().replace(" km", "").replace(",", "."));
+    }
+
+    // Trips visit each batch backwards, so every batch ends far from where the next one starts.
+    // Routes follow the requested stops with straight-line legs and one geometry point per stop;
+    // tables are straight-line too.
+    private RouteService createReversingService(AtomicInteger routeCalls) {
+        return createReversingService(routeCalls, new AtomicInteger());
+    }
+
+    private RouteService createReversingService(AtomicInteger routeCalls, AtomicInteger tableCalls) {
+        WebClient reversingClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    String[] coordinates = path.substring(path.lastIndexOf('/') + 1).split(";");
+                    double[][] points = new double[coordinates.length][];
+                    for (int i = 0; i < coordinates.length; i++) {
+                        String[] lngLat = coordinates[i].split(",");
+                        points[i] = new double[]{Double.parseDouble(lngLat[0]), Double.parseDouble(lngLat[1])};
+                    }
+                    StringBuilder body = new StringBuilder();
+                    if (path.contains("/table/")) {
+                        tableCalls.incrementAndGet();
+                        String query = request.url().getQuery();
+                        int[] sources = tableIndices(query, "sources", points.length);
+                        int[] destinations = tableIndices(query, "destinations", points.length);
+                        body.append("{\"code\":\"Ok\",\"distances\":[");
+                        for (int i = 0; i < sources.length; i++) {
+                            body.append(i > 0 ? ",[" : "[");
+                            for (int j = 0; j < destinations.length; j++) {
+                                body.append(j > 0 ? "," : "")
+                                        .append(metres(points[sources[i]], points[destinations[j]]));
+                            }
+                            body.append("]");
+                        }
+                        body.append("]}");
+                    } else if (path.contains("/trip/")) {
+                        double distance = metres(points[0], points[points.length - 1]);
+                        for (int i = points.length - 1; i > 1; i--) {
+                            distance += metres(points[i], points[i - 1]);
+                        }
+                        body.append("{\"code\":\"Ok\",\"trips\":[{\"distance\":").append(distance)
+                                .append("}],\"waypoints\":[{\"waypoint_index\":0}");
+                        for (int i = 1; i < points.length; i++) {
+                            body.append(",{\"waypoint_index\":").append(points.length - i).append("}");
+                        }
+                        body.append("]}");
+                    } else {
+                        routeCalls.incrementAndGet();
+                        double distance = 0;
+                        StringBuilder legs = new StringBuilder();
+                        for (int i = 1; i < points.length; i++) {
+                            double leg = metres(points[i - 1], points[i]);
+                            distance += leg;
+                            legs.append(i > 1 ? "," : "").append("{\"annotation\":{\"distance\":[").append(leg).append("]}}");
+                        }
+                        body.append("{\"code\":\"Ok\",\"routes\":[{\"distance\":").append(distance)
+                                .append(",\"geometry\":{\"coordinates\":[");
+                        for (int i = 0; i < points.length; i++) {
+                            body.append(i > 0 ? "," : "").append("[").append(points[i][0]).append(",").append(points[i][1]).append("]");
+                        }
+                        body.append("]},\"legs\":[").append(legs).append("]}]}");
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body.toString())
+                            .build());
+                })
+                .build();
+        RouteService reversingService = new RouteService(reversingClient);
+        ReflectionTestUtils.setField(reversingService, "osrmBaseUrl", "http://osrm.test");
+        ReflectionTestUtils.setField(reversingService, "batchingStrategy", "nearest-neighbor");
+        return reversingService;
+    }
+
+    private static int[] tableIndices(String query, String name, int coordinates) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    return Arrays.stream(parameter.substring(name.length() + 1).split(";"))
+                            .mapToInt(Integer::parseInt).toArray();
+                }
+            }
+        }
+        return java.util.stream.IntStream.range(0, coordinates).toArray();
+    }
+
+    private static double metres(double[] from, double[] to) {
+        return GeoPoints.haversineKm(from[1], from[0], to[1], to[0]) * 1000.0;
+    }
+
+    private RouteService createStubbedService(AtomicInteger tripCalls) {
+        WebClient stubClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    String body;
+                    if (path.contains("/trip/")) {
+                        tripCalls.incrementAndGet();
+                        body = "{\"code\":\"Ok\",\"trips\":[{\"distance\":1500.0}],"
+                                + "\"waypoints\":[{\"waypoint_index\":0},{\"waypoint_index\":2},{\"waypoint_index\":1}]}";
+                    } else {
+                        body = "{\"code\":\"Ok\",\"routes\":[{\"geometry\":{\"coordinates\":"
+                                + "[[28.97,41.00],[28.96,41.01],[28.95,41.02]]},"
+                                + "\"legs\":[{\"annotation\":{\"distance\":[700.0]}},"
+                                + "{\"annotation\":{\"distance\":[800.0]}}]}]}";
+                    }
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        RouteService stubbedService = new RouteService(stubClient);
+        ReflectionTestUtils.setField(stubbedService, "osrmBaseUrl", "http://osrm.test");
+        ReflectionTestUtils.setField(stubbedService, "exactMaxStops", 0);
+        return stubbedService;
+    }
+
+    // Answers trips in input order, 1 km and one geometry segment per stop, after a short delay
+    private RouteService createEchoService(AtomicInteger inFlight, AtomicInteger maxInFlight) {
+        WebClient echoClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String path = request.url().getPath();
+                    int coordinates = path.substring(path.lastIndexOf('/') + 1).split(";").length;
+                    StringBuilder body = new StringBuilder();
+                    if (path.contains("/trip/")) {
+                        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                        body.append("{\"code\":\"Ok\",\"trips\":[{\"distance\":")
+                                .append((coordinates - 1) * 1000.0).append("}],\"waypoints\":[");
+                        for (int i = 0; i < coordinates; i++) {
+                            body.append(i > 0 ? "," : "").append("{\"waypoint_index\":").append(i).append("}");
+                        }
+                        body.append("]}");
+                    } else {
+                        body.append("{\"code\":\"Ok\",\"routes\":[{\"geometry\":{\"coordinates\":[");
+                        for (int i = 0; i < coordinates; i++) {
+                            body.append(i > 0 ? "," : "").append("[29.0,41.0]");
+                        }
+                        body.append("]},\"legs\":[");
+                        for (int i = 0; i < coordinates - 1; i++) {
+                            body.append(i > 0 ? "," : "").append("{\"annotation\":{\"distance\":[1000.0]}}");
+                        }
+                        body.append("]}]}");
+                    }
+                    ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body.toString())
+                            .build();
+                    if (!path.contains("/trip/")) {
+                        return Mono.just(response);
+                    }
+                    return Mono.delay(Duration.ofMillis(200))
+                            .doOnNext(tick -> inFlight.decrementAndGet())
+                            .thenReturn(response);
+                })
+                .build();
+        RouteService echoService = new RouteService(echoClient);
+        ReflectionTestUtils.setField(echoService, "osrmBaseUrl", "http://osrm.test");
+        return echoService;
+    }
+
     private List<Customer> createLargeCustomerList(int size) {
         List<Customer> customers = new java.util.ArrayList<>();
         for (int i = 0; i < size; i++) {
@@ -82,6 +481,18 @@ class RouteServiceTest {
         return customers;
     }
 
+    private List<Customer> createGridCustomerList(int columns, int rows) {
+        List<Customer> customers = new java.util.ArrayList<>();
+        for (int i = 0; i < columns * rows; i++) {
+            Customer customer = new Customer();
+            customer.setMyId((long) i);
+            customer.setLatitude(41.0 + (i / columns) * 0.002);
+            customer.setLongitude(29.0 + (i % columns) * 0.002);
+            customers.add(customer);
+        }
+        return customers;
+    }
+
     private List<Customer> createScatteredCustomers() {
         Customer c1 = new Customer();
         c1.setMyId(1L);